@@ -0,0 +1,168 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import com.theaigames.game.warlight2.map.Map;
+import com.theaigames.game.warlight2.map.Region;
+
+/**
+ * BenchmarkGames class
+ * 
+ * Builds maps of any size and games in the middle of play for the benchmarks.
+ * The maps are grids where every region is connected to the regions left,
+ * right, above and below it, with a superRegion for every 6 regions.
+ * Everything is built from fixed seeds, so every run times the same game.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class BenchmarkGames {
+	
+	public static final String PLAYER1 = "player1";
+	public static final String PLAYER2 = "player2";
+	
+	private static final int REGIONS_PER_SUPER_REGION = 6;
+	private static final int MAX_MOVES = 50;
+	
+	/**
+	 * @param nrOfRegions : amount of regions on the map
+	 * @return : a map string in the same format as the map files
+	 */
+	public static String createMapString(int nrOfRegions)
+	{
+		int width = (int) Math.ceil(Math.sqrt(nrOfRegions));
+		StringBuilder mapString = new StringBuilder("{\"Regions\":[");
+		
+		for(int i = 0; i < nrOfRegions; i++)
+		{
+			if(i > 0)
+				mapString.append(',');
+			mapString.append("{\"id\":").append(i + 1)
+				.append(",\"superRegion\":").append(i / REGIONS_PER_SUPER_REGION + 1)
+				.append(",\"neighbors\":[");
+			boolean first = true;
+			if((i + 1) % width != 0 && i + 1 < nrOfRegions) { // right
+				mapString.append(i + 2);
+				first = false;
+			}
+			if(i + width < nrOfRegions) { // below
+				if(!first)
+					mapString.append(',');
+				mapString.append(i + width + 1);
+			}
+			mapString.append("]}");
+		}
+		
+		mapString.append("],\"SuperRegions\":[");
+		int nrOfSuperRegions = (nrOfRegions + REGIONS_PER_SUPER_REGION - 1) / REGIONS_PER_SUPER_REGION;
+		for(int i = 0; i < nrOfSuperRegions; i++)
+		{
+			if(i > 0)
+				mapString.append(',');
+			mapString.append("{\"id\":").append(i + 1).append(",\"bonus\":").append(i % 5 + 1).append('}');
+		}
+		return mapString.append("]}").toString();
+	}
+	
+	/**
+	 * A map in the middle of a game: a third of the regions for each player and a
+	 * third neutral, mixed so that most regions border an opponent
+	 * @param nrOfRegions : amount of regions on the map
+	 * @return : the map
+	 */
+	public static Map createGameMap(int nrOfRegions)
+	{
+		Map map = MapCreator.setupMap(MapCreator.createMap(createMapString(nrOfRegions)), 6, new GameRandom(1));
+		
+		for(Region region : map.getRegions())
+		{
+			switch(region.getIndex() % 3) {
+			case 0:
+				region.setPlayerName(PLAYER1);
+				region.setArmies(10);
+				break;
+			case 1:
+				region.setPlayerName(PLAYER2);
+				region.setArmies(10);
+				break;
+			}
+		}
+		return map;
+	}
+	
+	/**
+	 * @param map : the map to place on
+	 * @param playerName : player to place for
+	 * @return : response that places 5 armies on the first regions of the player
+	 */
+	public static String placeArmiesResponse(Map map, String playerName)
+	{
+		StringBuilder response = new StringBuilder();
+		int moves = 0;
+		for(Region region : map.getRegions())
+		{
+			if(moves == 5)
+				break;
+			if(region.ownedByPlayer(playerName)) {
+				if(moves > 0)
+					response.append(", ");
+				response.append(playerName).append(" place_armies ").append(region.getId()).append(" 1");
+				moves++;
+			}
+		}
+		return response.toString();
+	}
+	
+	/**
+	 * @param map : the map to move on
+	 * @param playerName : player to move for
+	 * @return : response with an attack or transfer from each region of the player to its
+	 * first neighbor, up to the maximum amount of moves
+	 */
+	public static String attackTransferResponse(Map map, String playerName)
+	{
+		StringBuilder response = new StringBuilder();
+		int moves = 0;
+		for(Region region : map.getRegions())
+		{
+			if(moves == MAX_MOVES)
+				break;
+			if(region.ownedByPlayer(playerName) && !region.getNeighbors().isEmpty()) {
+				if(moves > 0)
+					response.append(", ");
+				response.append(playerName).append(" attack/transfer ").append(region.getId())
+					.append(' ').append(region.getNeighbors().get(0).getId()).append(" 7");
+				moves++;
+			}
+		}
+		return response.toString();
+	}
+	
+	/**
+	 * @param name : name of the player
+	 * @param map : map the bot answers for
+	 * @return : a player with a CannedBot that always gives the same moves
+	 */
+	public static Player createPlayer(String name, Map map)
+	{
+		CannedBot bot = new CannedBot(placeArmiesResponse(map, name), attackTransferResponse(map, name));
+		Player player = new Player(name, bot, 5, 10000, 500);
+		player.setArmiesLeft(5);
+		return player;
+	}
+}
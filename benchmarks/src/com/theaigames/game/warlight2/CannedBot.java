@@ -0,0 +1,104 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import java.io.IOException;
+
+import com.theaigames.engine.io.BotPlayer;
+import com.theaigames.engine.io.ProtocolEncoder;
+
+/**
+ * CannedBot class
+ * 
+ * A bot for the benchmarks that gives the same prepared response every time
+ * it's asked for moves, so no bot process or bot code is timed.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class CannedBot implements BotPlayer {
+	
+	private final String placeArmiesResponse;
+	private final String attackTransferResponse;
+	private String response;
+	
+	/**
+	 * @param placeArmiesResponse : response to "go place_armies"
+	 * @param attackTransferResponse : response to "go attack/transfer"
+	 */
+	public CannedBot(String placeArmiesResponse, String attackTransferResponse)
+	{
+		this.placeArmiesResponse = placeArmiesResponse;
+		this.attackTransferResponse = attackTransferResponse;
+	}
+	
+	@Override
+	public void process(String line, String type) throws IOException
+	{
+		if(line.startsWith("go place_armies"))
+			response = placeArmiesResponse;
+		else if(line.startsWith("go attack/transfer"))
+			response = attackTransferResponse;
+		else if(line.startsWith("pick_starting_region"))
+			response = "";
+	}
+	
+	@Override
+	public void process(ProtocolEncoder line) throws IOException
+	{
+		if(line.length() < 64) // requests for moves are short, the long lines are map info that isn't needed
+			process(line.toString(), "input");
+	}
+	
+	@Override
+	public String getResponse(long requestTime, long timeOut)
+	{
+		String response = this.response;
+		this.response = null;
+		return response != null ? response : "";
+	}
+	
+	@Override
+	public long getResponseTime() {
+		return System.nanoTime();
+	}
+	
+	@Override
+	public void finish() {}
+	
+	@Override
+	public void addToDump(String dumpy) {}
+	
+	@Override
+	public String getStdout() {
+		return "";
+	}
+	
+	@Override
+	public String getStderr() {
+		return "";
+	}
+	
+	@Override
+	public String getDump() {
+		return "";
+	}
+	
+	@Override
+	public void run() {}
+}
@@ -0,0 +1,92 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theaigames.game.warlight2.map.Map;
+import com.theaigames.game.warlight2.map.Region;
+
+/**
+ * MapBenchmark class
+ * 
+ * Times copying the map and working out what a player can see
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+	
+	@Param({"42", "200", "1000", "5000"})
+	public int regions;
+	
+	private Map map;
+	private Player player1;
+	private Region region;
+	private boolean owner;
+	
+	@Setup
+	public void setup()
+	{
+		map = BenchmarkGames.createGameMap(regions);
+		player1 = BenchmarkGames.createPlayer(BenchmarkGames.PLAYER1, map);
+		region = map.getRegionByIndex(regions / 2);
+	}
+	
+	@Benchmark
+	public Map getMapCopy()
+	{
+		return map.getMapCopy();
+	}
+	
+	@Benchmark
+	public LinkedList<Region> visibleRegionsForPlayer()
+	{
+		return map.visibleRegionsForPlayer(player1);
+	}
+	
+	/**
+	 * A region changing owner every call, followed by asking what the player sees
+	 */
+	@Benchmark
+	public LinkedList<Region> visibleRegionsForPlayerAfterChange()
+	{
+		owner = !owner;
+		region.setPlayerName(owner ? BenchmarkGames.PLAYER1 : BenchmarkGames.PLAYER2);
+		return map.visibleRegionsForPlayer(player1);
+	}
+}
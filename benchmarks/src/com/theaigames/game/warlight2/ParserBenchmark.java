@@ -0,0 +1,85 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theaigames.game.warlight2.map.Map;
+import com.theaigames.game.warlight2.move.Move;
+
+/**
+ * ParserBenchmark class
+ * 
+ * Times parsing a response with the maximum amount of moves
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+	
+	@Param({"42", "200", "1000", "5000"})
+	public int regions;
+	
+	private Parser parser;
+	private Player player1;
+	private String placeArmiesResponse;
+	private String attackTransferResponse;
+	
+	@Setup
+	public void setup()
+	{
+		Map map = BenchmarkGames.createGameMap(regions);
+		parser = new Parser(map);
+		player1 = BenchmarkGames.createPlayer(BenchmarkGames.PLAYER1, map);
+		placeArmiesResponse = BenchmarkGames.placeArmiesResponse(map, BenchmarkGames.PLAYER1);
+		attackTransferResponse = BenchmarkGames.attackTransferResponse(map, BenchmarkGames.PLAYER1);
+	}
+	
+	@Benchmark
+	public ArrayList<Move> parsePlaceArmiesMoves()
+	{
+		parser.releaseMoves();
+		return parser.parseMoves(placeArmiesResponse, player1);
+	}
+	
+	@Benchmark
+	public ArrayList<Move> parseAttackTransferMoves()
+	{
+		parser.releaseMoves();
+		return parser.parseMoves(attackTransferResponse, player1);
+	}
+}
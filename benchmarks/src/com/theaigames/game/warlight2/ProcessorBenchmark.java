@@ -0,0 +1,157 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theaigames.game.warlight2.map.Map;
+
+/**
+ * ProcessorBenchmark class
+ * 
+ * Times playing one round and executing the attack/transfer moves of one round.
+ * Every call starts from the same game in the middle of play, with both bots
+ * giving the maximum amount of moves. Preparing that game isn't timed, but it
+ * happens for every call, so expect JMH to warn about Level.Invocation on the
+ * smaller maps.
+ * 
+ * Also times forking a game and playing one round on the fork with the moves the
+ * bots would give, as analysis tools do for every branch they try.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessorBenchmark {
+	
+	@State(Scope.Thread)
+	public static class Game
+	{
+		@Param({"42", "200", "1000", "5000"})
+		public int regions;
+		
+		Map map;
+		Player player1, player2;
+		long round;
+		
+		@Setup
+		public void setup()
+		{
+			map = BenchmarkGames.createGameMap(regions);
+			player1 = BenchmarkGames.createPlayer(BenchmarkGames.PLAYER1, map);
+			player2 = BenchmarkGames.createPlayer(BenchmarkGames.PLAYER2, map);
+		}
+		
+		Processor newProcessor()
+		{
+			player1.setArmiesLeft(5);
+			player2.setArmiesLeft(5);
+			return new Processor(map.getMapCopy(), player1, player2, new GameRandom(++round));
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Round
+	{
+		Processor processor;
+		
+		@Setup(Level.Invocation)
+		public void setup(Game game)
+		{
+			processor = game.newProcessor();
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class QueuedRound
+	{
+		Processor processor;
+		
+		@Setup(Level.Invocation)
+		public void setup(Game game)
+		{
+			processor = game.newProcessor();
+			processor.getMoves(game.player1.requestAttackTransferMoves(), game.player1);
+			processor.getMoves(game.player2.requestAttackTransferMoves(), game.player2);
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class ForkedGame
+	{
+		Processor processor;
+		String placeArmiesPlayer1, placeArmiesPlayer2;
+		String attackTransferPlayer1, attackTransferPlayer2;
+		
+		@Setup
+		public void setup(Game game)
+		{
+			processor = game.newProcessor();
+			placeArmiesPlayer1 = BenchmarkGames.placeArmiesResponse(game.map, BenchmarkGames.PLAYER1);
+			placeArmiesPlayer2 = BenchmarkGames.placeArmiesResponse(game.map, BenchmarkGames.PLAYER2);
+			attackTransferPlayer1 = BenchmarkGames.attackTransferResponse(game.map, BenchmarkGames.PLAYER1);
+			attackTransferPlayer2 = BenchmarkGames.attackTransferResponse(game.map, BenchmarkGames.PLAYER2);
+		}
+	}
+	
+	@Benchmark
+	public Processor playRound(Round round)
+	{
+		round.processor.playRound(1);
+		return round.processor;
+	}
+	
+	@Benchmark
+	public Processor executeAttackTransfer(QueuedRound round)
+	{
+		round.processor.executeAttackTransfer();
+		return round.processor;
+	}
+	
+	@Benchmark
+	public Processor fork(ForkedGame game)
+	{
+		return game.processor.fork();
+	}
+	
+	@Benchmark
+	public Processor forkAndSimulateRound(ForkedGame game)
+	{
+		Processor fork = game.processor.fork();
+		fork.simulateRound(game.placeArmiesPlayer1, game.placeArmiesPlayer2,
+				game.attackTransferPlayer1, game.attackTransferPlayer2);
+		return fork;
+	}
+}
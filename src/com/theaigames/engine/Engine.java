@@ -18,8 +18,12 @@
 package com.theaigames.engine;
 
 import com.theaigames.engine.io.BotCommunication;
+import com.theaigames.engine.io.BotPlayer;
 import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.JavaBot;
+import com.theaigames.engine.io.JavaPlayer;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -41,12 +45,21 @@ public class Engine implements BotCommunication {
     private Logic logic;
     
     // ArrayList containing player handlers
-    private ArrayList<IOPlayer> players;
+    private ArrayList<BotPlayer> players;
+    
+    // Where progress messages go
+    private PrintStream log;
     
     // Engine constructor 
     public Engine() {
         this.isRunning = false;
-        this.players = new ArrayList<IOPlayer>();
+        this.players = new ArrayList<BotPlayer>();
+        this.log = System.out;
+    }
+    
+    // Sets where progress messages go, System.out by default
+    public void setLog(PrintStream log) {
+        this.log = log;
     }
     
     // Sets game logic
@@ -60,14 +73,23 @@ public class Engine implements BotCommunication {
     }
     
     @Override
-    // Adds a player to the game
+    // Adds a player to the game, commands starting with JavaPlayer.COMMAND_PREFIX
+    // are loaded from a jar file and run inside this JVM
     public void addPlayer(String command) throws IOException {
 
-        // Create new process
-        Process process = Runtime.getRuntime().exec(command);
+        BotPlayer player;
+        if (command.startsWith(JavaPlayer.COMMAND_PREFIX)) {
+            
+            // Load bot class
+            player = JavaPlayer.load(command);
+        } else {
+            
+            // Create new process
+            Process process = Runtime.getRuntime().exec(command);
 
-        // Attach IO to process
-        IOPlayer player = new IOPlayer(process);
+            // Attach IO to process
+            player = new IOPlayer(process);
+        }
         
         // Add player
         this.players.add(player);
@@ -76,6 +98,23 @@ public class Engine implements BotCommunication {
         player.run();
     }
     
+    // Adds a player that runs inside this JVM to the game
+    public void addPlayer(JavaBot bot) {
+        
+        JavaPlayer player = new JavaPlayer(bot);
+        
+        this.players.add(player);
+        
+        player.run();
+    }
+    
+    // Ends the processes of all players, used when a game is aborted
+    public void finishPlayers() {
+        for (BotPlayer player : this.players) {
+            player.finish();
+        }
+    }
+    
     @Override
     // Method to start engine
     public void start() throws Exception {
@@ -99,7 +138,7 @@ public class Engine implements BotCommunication {
             // Check if win condition has been met
             if (this.hasEnded()) {
 
-                System.out.println("stopping...");
+                this.log.println("stopping...");
                 
                 // Stop running
                 this.isRunning = false;
@@ -108,7 +147,7 @@ public class Engine implements BotCommunication {
                 try {
                 	this.logic.finish();
                 } catch (Exception ex) {
-                    System.out.println(ex);
+                    this.log.println(ex);
                 	Logger.getLogger(Engine.class.getName()).log(Level.SEVERE, null, ex);
                 }
                 
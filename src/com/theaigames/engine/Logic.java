@@ -17,7 +17,7 @@
 
 package com.theaigames.engine;
 
-import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.BotPlayer;
 import java.util.ArrayList;
 
 /**
@@ -28,7 +28,7 @@ import java.util.ArrayList;
  * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
  */
 public interface Logic {
-    public void setupGame(ArrayList<IOPlayer> players) throws Exception;
+    public void setupGame(ArrayList<BotPlayer> players) throws Exception;
     public void playRound(int roundNumber) throws Exception;
     public boolean isGameWon();
     public void finish() throws Exception;
@@ -0,0 +1,57 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.io.IOException;
+
+/**
+ * BotPlayer interface
+ * 
+ * Handles the communication between a bot and the engine. Implemented by
+ * IOPlayer for bots that run in their own process and by JavaPlayer for
+ * bots that run inside the engine's JVM.
+ * 
+ * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
+ */
+public interface BotPlayer extends Runnable {
+    
+    // processes a line by reading it or writing it
+    public void process(String line, String type) throws IOException;
+    
+    // sends a line that was built with a ProtocolEncoder to the bot
+    public void process(ProtocolEncoder line) throws IOException;
+    
+    // waits for the response to a request that was sent at requestTime (System.nanoTime()),
+    // until at most timeOut ms after the request was sent
+    public String getResponse(long requestTime, long timeOut);
+    
+    // System.nanoTime() at which the bot gave the response that getResponse returned last,
+    // the end of the time out if the bot didn't respond in time
+    public long getResponseTime();
+    
+    // ends the bot and it's communication
+    public void finish();
+    
+    public void addToDump(String dumpy);
+    
+    public String getStdout();
+    
+    public String getStderr();
+    
+    public String getDump();
+}
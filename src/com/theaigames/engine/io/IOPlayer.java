@@ -18,7 +18,7 @@
 package com.theaigames.engine.io;
 
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,41 +29,36 @@ import java.util.logging.Logger;
  * 
  * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
  */
-public class IOPlayer implements Runnable {
+public class IOPlayer implements BotPlayer {
     
     private Process process;
-    private OutputStreamWriter inputStream;
+    private OutputStream inputStream;
+    private ProtocolEncoder lineEncoder;
     private InputStreamGobbler outputGobbler;
     private InputStreamGobbler errorGobbler;
     private StringBuilder dump;
-    private int errorCounter;
     private boolean finished;
     private final int maxErrors = 2;
-    
-    public String response;
+    private final ResponseSlot responseSlot; // last line the bot wrote
     
     public IOPlayer(Process process) {
-        this.inputStream = new OutputStreamWriter(process.getOutputStream());
+        this.inputStream = process.getOutputStream();
+        this.lineEncoder = new ProtocolEncoder();
     	this.outputGobbler = new InputStreamGobbler(process.getInputStream(), this, "output");
     	this.errorGobbler = new InputStreamGobbler(process.getErrorStream(), this, "error");
         this.process = process;
         this.dump = new StringBuilder();
-        this.errorCounter = 0;
         this.finished = false;
+        this.responseSlot = new ResponseSlot(this.maxErrors);
     }
     
     // processes a line by reading it or writing it
+    @Override
     public void process(String line, String type) throws IOException {
         if (!this.finished) {
         	switch (type) {
         	case "input":
-                try {
-            		this.inputStream.write(line + "\n");
-            		this.inputStream.flush();
-                } catch(IOException e) {
-                    System.err.println("Writing to bot failed");
-                }
-                addToDump(line + "\n");
+        		process(this.lineEncoder.reset().append(line));
         		break;
         	case "output":
     //    		System.out.println("out: " + line);
@@ -75,46 +70,46 @@ public class IOPlayer implements Runnable {
         }
     }
     
-    // waits for a response from the bot
-    public String getResponse(long timeOut) {
-    	long timeStart = System.currentTimeMillis();
-    	String response;
-		
-    	if (this.errorCounter > this.maxErrors) {
-    		addToDump("Maximum number (" + this.maxErrors + ") of time-outs reached: skipping all moves.\n");
-    		return "";
-    	}
-    	
-    	while(this.response == null) {
-    		long timeNow = System.currentTimeMillis();
-			long timeElapsed = timeNow - timeStart;
-			
-			if(timeElapsed >= timeOut) {
-				addToDump("Response timed out (" + timeOut + "ms), let your bot return 'No moves' instead of nothing or make it faster.\n");
-				this.errorCounter++;
-                if (this.errorCounter > this.maxErrors) {
-                    finish();
-                }
-                addToDump("Output from your bot: null");
-				return "";
-			}
-			
-			try { Thread.sleep(2); } catch (InterruptedException e) {}
-    	}
-		if(this.response.equalsIgnoreCase("No moves")) {
-			this.response = null;
-            addToDump("Output from your bot: \"No moves\"\n");
-			return "";
-		}
-		
-		response = this.response;
-		this.response = null;
+    // writes the bytes of the line straight to the bot process
+    @Override
+    public void process(ProtocolEncoder line) throws IOException {
+        if (!this.finished) {
+            try {
+                line.writeLineTo(this.inputStream);
+                this.inputStream.flush();
+            } catch(IOException e) {
+                System.err.println("Writing to bot failed");
+            }
+            line.appendTo(this.dump);
+            this.dump.append('\n');
+        }
+    }
+    
+    // stores a line the bot wrote and wakes up the engine if it is waiting for it,
+    // called by the output gobbler thread
+    void setResponse(String line) {
+        this.responseSlot.set(line);
+    }
 
-		addToDump("Output from your bot: \"" + response + "\"\n");
-		return response;
+    // waits for a response from the bot, see ResponseSlot. A bot with too many
+    // time-outs is finished after the slot's lock is released, so the output
+    // gobbler can still deliver lines while the process is being ended
+    @Override
+    public String getResponse(long requestTime, long timeOut) {
+        String response = this.responseSlot.take(requestTime, timeOut, this);
+        if (this.responseSlot.hasTooManyErrors()) {
+            finish();
+        }
+        return response;
+    }
+    
+    @Override
+    public long getResponseTime() {
+    	return this.responseSlot.getResponseTime();
     }
     
     // ends the bot process and it's communication
+    @Override
     public void finish() {
 
         if(this.finished)
@@ -138,18 +133,22 @@ public class IOPlayer implements Runnable {
         return this.process;
     }
     
+    @Override
     public void addToDump(String dumpy){
 		dump.append(dumpy);
 	}
     
+    @Override
     public String getStdout() {
     	return this.outputGobbler.getData();
     }
     
+    @Override
     public String getStderr() {
     	return this.errorGobbler.getData();
     }
     
+    @Override
     public String getDump() {
     	return dump.toString();
     }
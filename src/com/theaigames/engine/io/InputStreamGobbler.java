@@ -25,11 +25,11 @@ import java.io.InputStreamReader;
 /**
  * InputStreamGobbler class
  * 
- * Reads output from bots and stores it
+ * Reads output from bots and stores it, on a thread made by ReaderThreads
  * 
  * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
  */
-public class InputStreamGobbler extends Thread {
+public class InputStreamGobbler implements Runnable {
 	
 	private InputStream inputStream;
 	private IOPlayer player;
@@ -43,6 +43,12 @@ public class InputStreamGobbler extends Thread {
         this.buffer = new StringBuffer();
     }
 
+    // starts reading on a new reader thread
+    public void start() {
+        ReaderThreads.newThread(this).start();
+    }
+
+    @Override
     public void run() {
     	String lastLine;
     	
@@ -53,7 +59,7 @@ public class InputStreamGobbler extends Thread {
             while ((lastLine = bufferedReader.readLine()) != null) {
                 if (!lastLine.contains("VM warning") && buffer.length() < 1000000) { //catches bots that return way too much (infinite loop)
                     if (this.type.equals("output"))
-                	   this.player.response = lastLine;
+                	   this.player.setResponse(lastLine);
                     buffer.append(lastLine + "\n");
                 }
             }
@@ -0,0 +1,36 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+/**
+ * JavaBot interface
+ * 
+ * Interface to implement for bots that run inside the engine's JVM.
+ * The bot gets the same lines it would read from stdin, but as method
+ * calls, and returns what it would print to stdout.
+ * 
+ * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
+ */
+public interface JavaBot {
+    
+    /**
+     * @param line : one line of the game protocol, without line ending
+     * @return : the bot's output if the line asks for it, null otherwise
+     */
+    public String processLine(String line);
+}
@@ -0,0 +1,247 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JavaPlayer class
+ *
+ * Does the communication between a bot that runs inside the engine's JVM
+ * and the engine. Lines are passed to the bot as method calls, no process
+ * or pipes are involved. The calls are made on a thread of the bot's own, so
+ * the engine can stop waiting for a bot that is too slow or stuck, the same
+ * way it stops waiting for a bot process. A stuck bot thread is abandoned.
+ *
+ * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
+ */
+public class JavaPlayer implements BotPlayer {
+
+    // commands starting with this are loaded as JavaPlayer: "inprocess:[jar file]![class name]"
+    public static final String COMMAND_PREFIX = "inprocess:";
+
+    private static final AtomicInteger threadNr = new AtomicInteger();
+
+    private JavaBot bot;
+    private URLClassLoader classLoader; // loaded the bot, null if the bot was given directly
+    private LinkedBlockingQueue<String> lines; // lines the bot thread hasn't passed to the bot yet
+    private Thread botThread;
+    private StringBuilder dump; // guarded by this, like stdout and stderr
+    private StringBuilder stdout;
+    private StringBuilder stderr;
+    private volatile boolean finished;
+    private final int maxErrors = 2;
+    private final ResponseSlot responseSlot; // last output of the bot
+
+    public JavaPlayer(JavaBot bot) {
+        this(bot, null);
+    }
+
+    private JavaPlayer(JavaBot bot, URLClassLoader classLoader) {
+        this.bot = bot;
+        this.classLoader = classLoader;
+        this.lines = new LinkedBlockingQueue<String>();
+        this.dump = new StringBuilder();
+        this.stdout = new StringBuilder();
+        this.stderr = new StringBuilder();
+        this.finished = false;
+        this.responseSlot = new ResponseSlot(this.maxErrors);
+    }
+
+    /**
+     * Loads the bot class from a jar file with its own class loader, so it can't
+     * see the engine's classes (other than JavaBot) or the classes of other bots
+     * @param command : "inprocess:[jar file]![class name]"
+     * @return : a JavaPlayer for a new instance of the bot class
+     * @throws IOException : if the bot can't be loaded
+     */
+    public static JavaPlayer load(String command) throws IOException {
+        String bot = command.substring(COMMAND_PREFIX.length());
+        int separator = bot.lastIndexOf('!');
+        if (separator < 0) {
+            throw new IOException("Bot should be given as " + COMMAND_PREFIX + "[jar file]![class name]: " + command);
+        }
+
+        File jarFile = new File(bot.substring(0, separator));
+        String className = bot.substring(separator + 1);
+        if (!jarFile.isFile()) {
+            throw new IOException("Bot jar file not found: " + jarFile);
+        }
+
+        URLClassLoader classLoader = new BotClassLoader(jarFile.toURI().toURL());
+        try {
+            Class<?> botClass = Class.forName(className, true, classLoader);
+            return new JavaPlayer((JavaBot) botClass.getDeclaredConstructor().newInstance(), classLoader);
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+            classLoader.close();
+            throw new IOException("Could not load bot " + className + " from " + jarFile, e);
+        }
+    }
+
+    // passes a line to the bot thread
+    @Override
+    public void process(String line, String type) throws IOException {
+        if (!this.finished && type.equals("input")) {
+            addToDump(line + "\n");
+            this.lines.add(line);
+        }
+    }
+
+    // gives the lines to the bot one by one and stores its output, runs on the bot thread
+    private void runBot() {
+        while (!this.finished) {
+            String line;
+            try {
+                line = this.lines.take();
+            } catch (InterruptedException e) {
+                return; // finish() was called
+            }
+
+            String output;
+            try {
+                output = this.bot.processLine(line);
+            } catch (Throwable e) { // also Errors, the bot mustn't take the thread down without a trace
+                StringWriter trace = new StringWriter();
+                e.printStackTrace(new PrintWriter(trace));
+                synchronized (this) {
+                    this.stderr.append(trace);
+                    addToDump("Your bot threw " + e + "\n");
+                }
+                output = null;
+            }
+
+            if (output != null) {
+                setResponse(output);
+            }
+        }
+    }
+
+    // stores the output of the bot and wakes up the engine if it is waiting for it,
+    // this player's lock is released before the slot's is taken
+    private void setResponse(String output) {
+        synchronized (this) {
+            if (this.stdout.length() < 1000000) { //catches bots that return way too much (infinite loop)
+                this.stdout.append(output + "\n");
+            }
+        }
+        this.responseSlot.set(output);
+    }
+
+    // the bot takes strings, so the line is only turned into one here
+    @Override
+    public void process(ProtocolEncoder line) throws IOException {
+        process(line.toString(), "input");
+    }
+
+    // waits for the response of the bot, see ResponseSlot. A bot with too many
+    // time-outs is finished after the slot's lock is released, like IOPlayer does
+    @Override
+    public String getResponse(long requestTime, long timeOut) {
+        String response = this.responseSlot.take(requestTime, timeOut, this);
+        if (this.responseSlot.hasTooManyErrors()) {
+            finish();
+        }
+        return response;
+    }
+
+    @Override
+    public long getResponseTime() {
+        return this.responseSlot.getResponseTime();
+    }
+
+    // ends the communication with the bot, a bot thread that is still busy is
+    // interrupted and left to end by itself, it's a daemon thread
+    @Override
+    public void finish() {
+        if (this.finished) {
+            return;
+        }
+        this.finished = true;
+        this.lines.clear();
+        if (this.botThread != null) {
+            this.botThread.interrupt();
+        }
+        if (this.classLoader != null) {
+            try {
+                this.classLoader.close();
+            } catch (IOException e) {}
+        }
+    }
+
+    @Override
+    public synchronized void addToDump(String dumpy) {
+        dump.append(dumpy);
+    }
+
+    @Override
+    public synchronized String getStdout() {
+        return this.stdout.toString();
+    }
+
+    @Override
+    public synchronized String getStderr() {
+        return this.stderr.toString();
+    }
+
+    @Override
+    public synchronized String getDump() {
+        return dump.toString();
+    }
+
+    @Override
+    // starts the bot thread
+    public void run() {
+        if (this.botThread != null) {
+            return;
+        }
+        this.botThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runBot();
+            }
+        }, "java-bot-" + threadNr.incrementAndGet());
+        this.botThread.setDaemon(true);
+        this.botThread.start();
+    }
+
+    /**
+     * Loads classes from the bot's jar file. Only the Java platform classes and the
+     * JavaBot interface are taken from outside the jar file.
+     */
+    private static class BotClassLoader extends URLClassLoader {
+
+        BotClassLoader(URL jarFile) {
+            super(new URL[] { jarFile }, ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.equals(JavaBot.class.getName())) {
+                return JavaBot.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * ProtocolEncoder class
+ * 
+ * Builds one line for a bot directly as bytes in a buffer that is reused
+ * for every line, so no strings are made for the parts of the line.
+ * Text is written as UTF-8, which is the same as ASCII for everything the
+ * engine sends.
+ * 
+ * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
+ */
+public class ProtocolEncoder {
+    
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    
+    private byte[] buffer;
+    private int length;
+    private boolean ascii;
+    
+    public ProtocolEncoder() {
+        this.buffer = new byte[256];
+        this.length = 0;
+        this.ascii = true;
+    }
+    
+    /**
+     * Empties the buffer to start a new line
+     * @return : this encoder
+     */
+    public ProtocolEncoder reset() {
+        this.length = 0;
+        this.ascii = true;
+        return this;
+    }
+    
+    /**
+     * @param text : text to add
+     * @return : this encoder
+     */
+    public ProtocolEncoder append(String text) {
+        int textLength = text.length();
+        ensureCapacity(textLength);
+        for (int i = 0; i < textLength; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) { // not ASCII, let the charset handle the rest
+                appendBytes(text.substring(i).getBytes(UTF_8));
+                this.ascii = false;
+                return this;
+            }
+            this.buffer[this.length++] = (byte) c;
+        }
+        return this;
+    }
+    
+    /**
+     * @param c : an ASCII character to add
+     * @return : this encoder
+     */
+    public ProtocolEncoder append(char c) {
+        ensureCapacity(1);
+        this.buffer[this.length++] = (byte) c;
+        return this;
+    }
+    
+    /**
+     * @param number : number to add in decimal notation
+     * @return : this encoder
+     */
+    public ProtocolEncoder append(long number) {
+        if (number == Long.MIN_VALUE) {
+            return append(Long.toString(number));
+        }
+        
+        ensureCapacity(20);
+        if (number < 0) {
+            this.buffer[this.length++] = '-';
+            number = -number;
+        }
+        int digits = 1;
+        for (long rest = number / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int position = this.length + digits;
+        do {
+            this.buffer[--position] = (byte) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        this.length += digits;
+        return this;
+    }
+    
+    /**
+     * @param bytes : ASCII text to add, for instance from toByteArray()
+     * @return : this encoder
+     */
+    public ProtocolEncoder append(byte[] bytes) {
+        appendBytes(bytes);
+        return this;
+    }
+    
+    /**
+     * Adds a space followed by the number, as in most engine messages
+     * @param number : number to add
+     * @return : this encoder
+     */
+    public ProtocolEncoder appendSpaced(long number) {
+        return append(' ').append(number);
+    }
+    
+    /**
+     * @return : amount of bytes in the buffer
+     */
+    public int length() {
+        return this.length;
+    }
+    
+    /**
+     * Removes everything after given length, to undo appends
+     * @param length : new length, at most the current length
+     */
+    public void setLength(int length) {
+        this.length = length;
+    }
+    
+    /**
+     * Writes the line followed by a newline, the line itself is left as it was,
+     * also when writing fails
+     * @param out : stream to write to, not flushed
+     * @throws IOException
+     */
+    public void writeLineTo(OutputStream out) throws IOException {
+        append('\n');
+        try {
+            out.write(this.buffer, 0, this.length);
+        } finally {
+            this.length--;
+        }
+    }
+    
+    /**
+     * Adds the line to a string builder, for the dump
+     * @param builder : builder to add to
+     */
+    public void appendTo(StringBuilder builder) {
+        if (!this.ascii) {
+            builder.append(toString());
+            return;
+        }
+        builder.ensureCapacity(builder.length() + this.length);
+        for (int i = 0; i < this.length; i++) {
+            builder.append((char) this.buffer[i]);
+        }
+    }
+    
+    /**
+     * @return : a copy of the bytes in the buffer, to keep a line that is sent more often
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.length);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(this.buffer, 0, this.length, UTF_8);
+    }
+    
+    private void appendBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.length, bytes.length);
+        this.length += bytes.length;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (this.length + extra > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.length + extra, this.buffer.length * 2));
+        }
+    }
+}
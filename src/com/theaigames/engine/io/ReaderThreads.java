@@ -0,0 +1,121 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReaderThreads class
+ *
+ * Creates the threads that read the output and error streams of bot processes.
+ * The kind of thread is chosen with the system property "engine.readerThreads":
+ * "platform" (default) for normal threads with a small stack, or "virtual" for
+ * virtual threads, which are only available on Java 21 and newer.
+ *
+ * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
+ */
+public final class ReaderThreads {
+
+    public static final String PROPERTY = "engine.readerThreads";
+
+    // a reader only holds a line buffer, it doesn't need the default stack size
+    private static final long PLATFORM_STACK_SIZE = 128 * 1024;
+
+    private static volatile ThreadFactory factory;
+
+    private ReaderThreads() {}
+
+    /**
+     * Replaces the configured thread factory, for instance when the engine is
+     * embedded in an application that manages its own threads
+     * @param threadFactory : factory used for all readers started after this call
+     */
+    public static void setFactory(ThreadFactory threadFactory) {
+        factory = threadFactory;
+    }
+
+    /**
+     * Sets up the thread factory from the system property. Called at startup, so
+     * a wrong value fails before any game starts instead of when the first bot does
+     * @throws IllegalArgumentException : if the property has an unknown value
+     * @throws IllegalStateException : if the chosen kind of thread isn't available
+     */
+    public static void configure() {
+        setFactory(fromConfiguration(System.getProperty(PROPERTY, "platform")));
+    }
+
+    /**
+     * @param reader : the reader to run
+     * @return : a new, not yet started thread for the reader
+     */
+    static Thread newThread(Runnable reader) {
+        ThreadFactory threadFactory = factory;
+        if (threadFactory == null) {
+            synchronized (ReaderThreads.class) {
+                if (factory == null) {
+                    factory = fromConfiguration(System.getProperty(PROPERTY, "platform"));
+                }
+                threadFactory = factory;
+            }
+        }
+        return threadFactory.newThread(reader);
+    }
+
+    /**
+     * @param kind : "platform" or "virtual"
+     * @return : factory for the given kind of thread
+     * @throws IllegalArgumentException : if kind is none of these
+     * @throws IllegalStateException : if virtual threads aren't available on this Java version
+     */
+    public static ThreadFactory fromConfiguration(String kind) {
+        switch (kind) {
+        case "platform":
+            return platformThreads();
+        case "virtual":
+            return virtualThreads();
+        default:
+            throw new IllegalArgumentException("Unknown value for " + PROPERTY + ": " + kind + ", use platform or virtual");
+        }
+    }
+
+    private static ThreadFactory platformThreads() {
+        final AtomicInteger threadNr = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable reader) {
+                Thread thread = new Thread(null, reader, "bot-reader-" + threadNr.incrementAndGet(), PLATFORM_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    // Thread.ofVirtual().name("bot-reader-", 1).factory(), through reflection so
+    // the engine still builds and runs on older Java versions
+    private static ThreadFactory virtualThreads() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "bot-reader-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or newer, use " + PROPERTY + "=platform", e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResponseSlot class
+ *
+ * Hands the last line a bot gave over to the engine, which waits for it until its
+ * time out. A line that was given after the time out is left for the next request,
+ * as if it came in after the engine stopped waiting. Counts the time-outs, a bot
+ * with too many of them should be finished by its player.
+ *
+ * Guarded by its own lock. A player must not hold its own lock while calling it,
+ * take() writes to the player's dump while holding this one.
+ *
+ * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
+ */
+final class ResponseSlot {
+
+    private final int maxErrors;
+    private int errorCounter;
+
+    private String response; // last line the bot gave
+    private long responseWriteTime; // System.nanoTime() when the bot gave response
+    private long responseTime; // what getResponseTime() returns
+
+    ResponseSlot(int maxErrors) {
+        this.maxErrors = maxErrors;
+        this.errorCounter = 0;
+    }
+
+    // stores a line the bot gave and wakes up the engine if it is waiting for it
+    synchronized void set(String line) {
+        this.response = line;
+        this.responseWriteTime = System.nanoTime();
+        notifyAll();
+    }
+
+    /**
+     * Waits for the response to given request
+     * @param requestTime : System.nanoTime() when the request was sent
+     * @param timeOut : time the bot has to respond in ms
+     * @param player : player the dump messages are written to
+     * @return : the response, "" if there was none in time
+     */
+    synchronized String take(long requestTime, long timeOut, BotPlayer player) {
+        long deadline = requestTime + TimeUnit.MILLISECONDS.toNanos(timeOut);
+        String response;
+
+        this.responseTime = requestTime;
+        if (this.errorCounter > this.maxErrors) {
+            player.addToDump("Maximum number (" + this.maxErrors + ") of time-outs reached: skipping all moves.\n");
+            return "";
+        }
+
+        while (this.response == null || this.responseWriteTime - deadline > 0) {
+            long timeLeft = deadline - System.nanoTime();
+
+            if (timeLeft <= 0) {
+                this.responseTime = deadline;
+                player.addToDump("Response timed out (" + timeOut + "ms), let your bot return 'No moves' instead of nothing or make it faster.\n");
+                this.errorCounter++;
+                player.addToDump("Output from your bot: null");
+                return "";
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, timeLeft);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.responseTime = System.nanoTime();
+                player.addToDump("Interrupted while waiting for the response.\n");
+                return "";
+            }
+        }
+        this.responseTime = this.responseWriteTime;
+        if (this.response.equalsIgnoreCase("No moves")) {
+            this.response = null;
+            player.addToDump("Output from your bot: \"No moves\"\n");
+            return "";
+        }
+
+        response = this.response;
+        this.response = null;
+
+        player.addToDump("Output from your bot: \"" + response + "\"\n");
+        return response;
+    }
+
+    // true once the bot timed out more than maxErrors times
+    synchronized boolean hasTooManyErrors() {
+        return this.errorCounter > this.maxErrors;
+    }
+
+    // when the last response was given, the deadline if it timed out
+    synchronized long getResponseTime() {
+        return this.responseTime;
+    }
+}
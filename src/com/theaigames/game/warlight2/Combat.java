@@ -0,0 +1,210 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Combat class
+ * 
+ * The numbers behind an attack, see wiki.warlight.net/index.php/Combat_Basics
+ * Every attacking army has a 60% chance to destroy a defending army and every
+ * defending army a 70% chance to destroy an attacking army. The amount of
+ * armies destroyed that way is binomially distributed, so it's drawn directly
+ * from that distribution instead of with one random number per army.
+ * 
+ * The exact chances of all outcomes of an attack are given by getOdds(),
+ * the most recently used ones are kept in memory up to a total amount of
+ * probabilities, so a few huge attacks can't fill the memory.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class Combat {
+	
+	public static final double ATTACKER_KILL_CHANCE = 0.6;
+	public static final double DEFENDER_KILL_CHANCE = 0.7;
+	public static final double LUCK_MODIFIER = 0.16;
+	
+	// below this expected amount of kills the distribution is walked from 0 (inversion),
+	// above it the transformed rejection method (BTRS) is used
+	private static final double INVERSION_LIMIT = 10;
+	
+	private static final int MAX_MEMOIZED_CELLS = 1 << 20; // about 8MB of probabilities in total
+	private static final int MAX_MEMOIZED_ODDS_CELLS = 1 << 14; // larger odds are computed every time
+	
+	// in access order, so even a get changes it: only use it while holding its lock,
+	// games are played in parallel. memoizedCells is guarded by the same lock.
+	private static final LinkedHashMap<Long, CombatOdds> memoizedOdds = new LinkedHashMap<Long, CombatOdds>(16, 0.75f, true);
+	private static int memoizedCells = 0;
+	
+	private static final double HALF_LOG_2PI = 0.5 * Math.log(2 * Math.PI);
+	private static final double[] LOG_FACTORIALS = new double[256];
+	static {
+		for(int k = 1; k < LOG_FACTORIALS.length; k++)
+			LOG_FACTORIALS[k] = LOG_FACTORIALS[k-1] + Math.log(k);
+	}
+	
+	/**
+	 * Draws how many armies are destroyed with 100% luck, has the same distribution as
+	 * drawing a random number for each of the armies
+	 * @param armies : amount of armies that try to destroy an army
+	 * @param killChance : chance for each army to destroy an army
+	 * @param random : random generator of the game
+	 * @return : amount of armies destroyed, between 0 and armies
+	 */
+	public static int sampleKills(int armies, double killChance, GameRandom random)
+	{
+		if(armies <= 0)
+			return 0;
+		if(killChance > 0.5) // both methods need a chance of at most 0.5, count the misses instead
+			return armies - sampleKills(armies, 1 - killChance, random);
+		
+		if(armies * killChance < INVERSION_LIMIT)
+			return sampleByInversion(armies, killChance, random);
+		return sampleByRejection(armies, killChance, random);
+	}
+	
+	/**
+	 * @param attackingArmies : armies used in the attack, at least 1
+	 * @param defendingArmies : armies on the attacked region, at least 1
+	 * @return : the exact chances of all outcomes of the attack
+	 */
+	public static CombatOdds getOdds(int attackingArmies, int defendingArmies)
+	{
+		if(attackingArmies < 1 || defendingArmies < 1)
+			throw new IllegalArgumentException("Both sides need at least 1 army: " + attackingArmies + " vs " + defendingArmies);
+		
+		Long key = ((long) attackingArmies << 32) | defendingArmies;
+		synchronized(memoizedOdds) {
+			CombatOdds odds = memoizedOdds.get(key);
+			if(odds != null)
+				return odds;
+		}
+		
+		CombatOdds odds = new CombatOdds(attackingArmies, defendingArmies); // computed outside the lock, other threads can use the table meanwhile
+		if(odds.getNrOfCells() > MAX_MEMOIZED_ODDS_CELLS)
+			return odds;
+		
+		synchronized(memoizedOdds) {
+			CombatOdds memoized = memoizedOdds.get(key);
+			if(memoized != null) // another thread computed the same odds meanwhile
+				return memoized;
+			
+			memoizedOdds.put(key, odds);
+			memoizedCells += odds.getNrOfCells();
+			Iterator<CombatOdds> eldest = memoizedOdds.values().iterator(); // least recently used first
+			while(memoizedCells > MAX_MEMOIZED_CELLS) {
+				memoizedCells -= eldest.next().getNrOfCells();
+				eldest.remove();
+			}
+		}
+		return odds;
+	}
+	
+	/**
+	 * Applies the luck modifier to get the actual amount of destroyed armies
+	 * straight round method is used (instead of weighted random round)
+	 * @param armies : amount of armies that try to destroy an army
+	 * @param killChance : chance for each army to destroy an army
+	 * @param kills : amount of armies destroyed with 100% luck
+	 * @return : actual amount of armies destroyed
+	 */
+	public static int applyLuck(int armies, double killChance, int kills)
+	{
+		return (int) Math.round( ((armies * killChance) * (1 - LUCK_MODIFIER)) + (kills * LUCK_MODIFIER) );
+	}
+	
+	/**
+	 * Walks the probabilities from 0 kills up until the random number is used up,
+	 * takes about armies * killChance steps
+	 */
+	private static int sampleByInversion(int armies, double killChance, GameRandom random)
+	{
+		double ratio = killChance / (1 - killChance);
+		double a = (armies + 1) * ratio;
+		double firstProbability = Math.pow(1 - killChance, armies);
+		
+		while(true) {
+			double u = random.nextDouble();
+			double probability = firstProbability;
+			int kills = 0;
+			while(u > probability) {
+				u -= probability;
+				kills++;
+				if(kills > armies) // only possible through rounding errors, draw again
+					break;
+				probability *= a / kills - ratio;
+			}
+			if(kills <= armies)
+				return kills;
+		}
+	}
+	
+	/**
+	 * Transformed rejection with squeeze (Hormann, The generation of binomial random variates, 1993),
+	 * takes a constant amount of steps on average, whatever the amount of armies
+	 */
+	private static int sampleByRejection(int armies, double killChance, GameRandom random)
+	{
+		double missChance = 1 - killChance;
+		double spq = Math.sqrt(armies * killChance * missChance);
+		double b = 1.15 + 2.53 * spq;
+		double a = -0.0873 + 0.0248 * b + 0.01 * killChance;
+		double c = armies * killChance + 0.5;
+		double vr = 0.92 - 4.2 / b;
+		double alpha = (2.83 + 5.1 / b) * spq;
+		double lpq = Math.log(killChance / missChance);
+		int mode = (int) ((armies + 1) * killChance);
+		double h = logFactorial(mode) + logFactorial(armies - mode);
+		
+		while(true) {
+			double u = random.nextDouble() - 0.5;
+			double v = random.nextDouble();
+			double us = 0.5 - Math.abs(u);
+			double k = Math.floor((2 * a / us + b) * u + c);
+			if(k < 0 || k > armies)
+				continue;
+			
+			int kills = (int) k;
+			if(us >= 0.07 && v <= vr)
+				return kills;
+			
+			v = Math.log(v * alpha / (a / (us * us) + b));
+			if(v <= h - logFactorial(kills) - logFactorial(armies - kills) + (kills - mode) * lpq)
+				return kills;
+		}
+	}
+	
+	/**
+	 * @param k : at least 0
+	 * @return : ln(k!)
+	 */
+	static double logFactorial(int k)
+	{
+		if(k < LOG_FACTORIALS.length)
+			return LOG_FACTORIALS[k];
+		
+		// Stirling's series, more than accurate enough from 256 on
+		double x = k;
+		double x2 = x * x;
+		return (x + 0.5) * Math.log(x) - x + HALF_LOG_2PI
+				+ (1.0 / 12 - (1.0 / 360 - 1.0 / (1260 * x2)) / x2) / x;
+	}
+}
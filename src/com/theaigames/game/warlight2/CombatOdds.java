@@ -0,0 +1,201 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+/**
+ * CombatOdds class
+ * 
+ * The exact probabilities of all outcomes of one attack, following the same
+ * rules as Processor.doAttack: kill chances, luck modifier rounding and the
+ * correction when both sides would be destroyed. Get it from Combat.getOdds().
+ * 
+ * The amounts destroyed on both sides are independent before the correction,
+ * so only the two distributions of destroyed armies are stored and every
+ * probability is computed from them.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class CombatOdds {
+	
+	private final int attackingArmies;
+	private final int defendingArmies;
+	
+	// chance that the attack destroys exactly i defending/attacking armies, before the correction
+	private final double[] defendersDestroyed;
+	private final double[] attackersDestroyed;
+	
+	private final double attackersWipedOut; // chance that at least all attacking armies are destroyed
+	private final double attackersSurvive; // chance that at least one attacking army survives
+	private final double defendersWipedOut; // chance that at least all defending armies are destroyed
+	private final double defendersAllButOne; // chance that at least all but one defending armies are destroyed
+	
+	/**
+	 * @param attackingArmies : armies used in the attack
+	 * @param defendingArmies : armies on the attacked region
+	 */
+	CombatOdds(int attackingArmies, int defendingArmies)
+	{
+		this.attackingArmies = attackingArmies;
+		this.defendingArmies = defendingArmies;
+		this.defendersDestroyed = destroyedDistribution(attackingArmies, Combat.ATTACKER_KILL_CHANCE);
+		this.attackersDestroyed = destroyedDistribution(defendingArmies, Combat.DEFENDER_KILL_CHANCE);
+		this.attackersWipedOut = tail(attackersDestroyed, attackingArmies);
+		this.attackersSurvive = Math.max(1 - attackersWipedOut, 0);
+		this.defendersWipedOut = tail(defendersDestroyed, defendingArmies);
+		this.defendersAllButOne = tail(defendersDestroyed, defendingArmies - 1);
+	}
+	
+	/**
+	 * Distribution of the amount of armies destroyed after the luck modifier
+	 * @param armies : amount of armies that try to destroy an army
+	 * @param killChance : chance for each army to destroy an army
+	 * @return : chance for every amount of destroyed armies
+	 */
+	private static double[] destroyedDistribution(int armies, double killChance)
+	{
+		double[] distribution = new double[Combat.applyLuck(armies, killChance, armies) + 1];
+		double logKill = Math.log(killChance);
+		double logMiss = Math.log(1 - killChance);
+		double logArmies = Combat.logFactorial(armies);
+		
+		for(int kills = 0; kills <= armies; kills++)
+		{
+			double logChance = logArmies - Combat.logFactorial(kills) - Combat.logFactorial(armies - kills)
+					+ kills * logKill + (armies - kills) * logMiss;
+			distribution[Combat.applyLuck(armies, killChance, kills)] += Math.exp(logChance);
+		}
+		return distribution;
+	}
+	
+	// chance of at least amount
+	private static double tail(double[] distribution, int amount)
+	{
+		double chance = 0;
+		for(int i = Math.max(amount, 0); i < distribution.length; i++)
+			chance += distribution[i];
+		return chance;
+	}
+	
+	private static double chance(double[] distribution, int amount)
+	{
+		if(amount < 0 || amount >= distribution.length)
+			return 0;
+		return distribution[amount];
+	}
+	
+	/**
+	 * @param attackersLost : amount of attacking armies destroyed
+	 * @param defendersLost : amount of defending armies destroyed
+	 * @param captured : true if the region is taken
+	 * @return : chance of exactly this outcome
+	 */
+	public double getProbability(int attackersLost, int defendersLost, boolean captured)
+	{
+		if(captured) {
+			if(defendersLost != defendingArmies || attackersLost >= attackingArmies)
+				return 0;
+			return chance(attackersDestroyed, attackersLost) * defendersWipedOut;
+		}
+		
+		if(attackersLost == attackingArmies) { // attackers wiped out, at least one defending army survives
+			if(defendersLost == defendingArmies - 1)
+				return attackersWipedOut * defendersAllButOne;
+			if(defendersLost >= defendingArmies - 1)
+				return 0;
+			return attackersWipedOut * chance(defendersDestroyed, defendersLost);
+		}
+		
+		if(attackersLost > attackingArmies || defendersLost >= defendingArmies)
+			return 0;
+		return chance(attackersDestroyed, attackersLost) * chance(defendersDestroyed, defendersLost);
+	}
+	
+	/**
+	 * @return : chance that the region is taken
+	 */
+	public double getCaptureProbability()
+	{
+		return attackersSurvive * defendersWipedOut;
+	}
+	
+	/**
+	 * @param attackersLost : amount of attacking armies destroyed
+	 * @return : chance of losing exactly this amount of attacking armies, whatever else happens
+	 */
+	public double getAttackersLostProbability(int attackersLost)
+	{
+		if(attackersLost == attackingArmies)
+			return attackersWipedOut;
+		if(attackersLost > attackingArmies)
+			return 0;
+		return chance(attackersDestroyed, attackersLost);
+	}
+	
+	/**
+	 * @param defendersLost : amount of defending armies destroyed
+	 * @return : chance of losing exactly this amount of defending armies, whatever else happens
+	 */
+	public double getDefendersLostProbability(int defendersLost)
+	{
+		if(defendersLost == defendingArmies)
+			return getCaptureProbability();
+		if(defendersLost == defendingArmies - 1)
+			return attackersWipedOut * defendersAllButOne + attackersSurvive * chance(defendersDestroyed, defendersLost);
+		if(defendersLost > defendingArmies)
+			return 0;
+		return chance(defendersDestroyed, defendersLost);
+	}
+	
+	/**
+	 * @return : average amount of attacking armies destroyed
+	 */
+	public double getExpectedAttackersLost()
+	{
+		double expected = 0;
+		for(int lost = 0; lost <= attackingArmies; lost++)
+			expected += lost * getAttackersLostProbability(lost);
+		return expected;
+	}
+	
+	/**
+	 * @return : average amount of defending armies destroyed
+	 */
+	public double getExpectedDefendersLost()
+	{
+		double expected = 0;
+		for(int lost = 0; lost <= defendingArmies; lost++)
+			expected += lost * getDefendersLostProbability(lost);
+		return expected;
+	}
+	
+	public int getAttackingArmies() {
+		return attackingArmies;
+	}
+	
+	public int getDefendingArmies() {
+		return defendingArmies;
+	}
+	
+	/**
+	 * @return : amount of probabilities stored, a measure for the memory used
+	 */
+	int getNrOfCells() {
+		return defendersDestroyed.length + attackersDestroyed.length;
+	}
+}
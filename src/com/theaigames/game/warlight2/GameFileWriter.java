@@ -0,0 +1,211 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import com.theaigames.game.warlight2.map.Map;
+import com.theaigames.game.warlight2.move.GameHistory;
+import com.theaigames.game.warlight2.move.MoveResult;
+
+/**
+ * GameFileWriter class
+ * 
+ * Writes the played game in the format the visualizer reads. Every time
+ * a round is finished, the new part of the game history is replayed and written
+ * to the output files and removed from the history, so memory use does not
+ * grow with the length of the game.
+ * 
+ * Three views are written: the full game to the given file and what each player
+ * could see to the same file name followed by ".player1" and ".player2".
+ * 
+ * finish() writes the result and closes the files. A game that is aborted
+ * only calls close(), which keeps what has been written so far.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class GameFileWriter implements Closeable {
+	
+	private final Player player1, player2;
+	private final Writer fullOut, player1Out, player2Out;
+	private final Map map; //the game is replayed on this map
+	private final StringBuilder line;
+	
+	private int roundNr;
+	private boolean roundStarted; //the start of a round is only written when something follows it
+	
+	/**
+	 * @param fileName : file to write the full game to
+	 * @param history : history of the game, nothing of it must have been cleared yet
+	 * @param player1
+	 * @param player2
+	 * @throws IOException : if one of the files can't be opened, the ones already opened are closed
+	 */
+	public GameFileWriter(String fileName, GameHistory history, Player player1, Player player2) throws IOException
+	{
+		this.player1 = player1;
+		this.player2 = player2;
+		Writer fullOut = null, player1Out = null;
+		try {
+			fullOut = new BufferedWriter(new FileWriter(fileName));
+			player1Out = new BufferedWriter(new FileWriter(fileName + "." + player1.getName()));
+			this.player2Out = new BufferedWriter(new FileWriter(fileName + "." + player2.getName()));
+		} catch(IOException e) {
+			closeQuietly(player1Out);
+			closeQuietly(fullOut);
+			throw e;
+		}
+		this.fullOut = fullOut;
+		this.player1Out = player1Out;
+		this.map = history.getInitialMapCopy();
+		this.line = new StringBuilder();
+		this.roundNr = 0;
+		this.roundStarted = false;
+	}
+	
+	/**
+	 * Writes everything that has been stored in the history since the last call
+	 * and removes it from the history
+	 * @param history : history of the game
+	 * @throws IOException
+	 */
+	public void write(GameHistory history) throws IOException
+	{
+		for(MoveResult moveResult : history.getMoveResults())
+		{
+			if(moveResult != null)
+			{
+				moveResult.apply(map);
+				
+				if(roundStarted)
+				{
+					writeRoundStart();
+					roundStarted = false;
+				}
+				
+				writeMoveResult(fullOut, moveResult, null);
+				if(moveResult.isInPlayer1View())
+					writeMoveResult(player1Out, moveResult, player1);
+				if(moveResult.isInPlayer2View())
+					writeMoveResult(player2Out, moveResult, player2);
+			}
+			else
+			{
+				if(roundStarted)
+					writeRoundStart();
+				roundStarted = true;
+			}
+		}
+		history.clear();
+		
+		fullOut.flush();
+		player1Out.flush();
+		player2Out.flush();
+	}
+	
+	/**
+	 * Writes the winner and closes the files
+	 * @param winner : winner of the game, null if nobody won
+	 * @throws IOException
+	 */
+	public void finish(Player winner) throws IOException
+	{
+		String result;
+		if(winner != null)
+			result = winner.getName() + " won\n";
+		else
+			result = "Nobody won\n";
+		
+		try {
+			fullOut.write(result);
+			player1Out.write(result);
+			player2Out.write(result);
+		} finally {
+			close();
+		}
+	}
+	
+	/**
+	 * Flushes and closes the files, also when one of them fails, closing again does nothing
+	 * @throws IOException : the first error, after all files have been closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		IOException error = null;
+		for(Writer out : new Writer[] {fullOut, player1Out, player2Out})
+		{
+			try {
+				out.close();
+			} catch(IOException e) {
+				if(error == null)
+					error = e;
+			}
+		}
+		if(error != null)
+			throw error;
+	}
+	
+	private static void closeQuietly(Writer out)
+	{
+		if(out != null) {
+			try {
+				out.close();
+			} catch(IOException e) {}
+		}
+	}
+	
+	/**
+	 * Writes the start of the current round to all views
+	 * @throws IOException
+	 */
+	private void writeRoundStart() throws IOException
+	{
+		String roundString = "round " + roundNr + "\n";
+		fullOut.write(roundString);
+		player1Out.write(roundString);
+		player2Out.write(roundString);
+		roundNr++;
+	}
+	
+	/**
+	 * Writes the move and the resulting map
+	 * @param out : view to write to
+	 * @param moveResult : the MoveResult, already applied on the map
+	 * @param player : player the view belongs to, null for the full view
+	 * @throws IOException
+	 */
+	private void writeMoveResult(Writer out, MoveResult moveResult, Player player) throws IOException
+	{
+		line.setLength(0);
+		
+		if(moveResult.getMove() != null)
+			line.append(moveResult.getMove().getString()).append('\n');
+		
+		line.append("map ");
+		map.appendMapString(line, moveResult.hasFogOfWar() ? player : null);
+		line.append('\n');
+		
+		out.append(line);
+	}
+}
@@ -0,0 +1,113 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameRandom class
+ * 
+ * Random number generator owned by one game (SplitMix64). It isn't shared
+ * between games or threads, so games don't have to wait for each other,
+ * and a game played again with the same seed and the same bot moves has
+ * exactly the same outcome.
+ * 
+ * Every part of the game that needs randomness gets its own generator
+ * through split(), so using more or less numbers in one part doesn't change
+ * the numbers another part gets.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class GameRandom {
+	
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+	
+	private static final AtomicLong seedUniquifier = new AtomicLong(System.currentTimeMillis());
+	
+	private final long seed;
+	private long state;
+	
+	/**
+	 * @param seed : the same seed always gives the same numbers
+	 */
+	public GameRandom(long seed)
+	{
+		this.seed = seed;
+		this.state = seed;
+	}
+	
+	/**
+	 * @return : a seed that differs for every call, also between games started at the same time
+	 */
+	public static long newSeed()
+	{
+		return mix(seedUniquifier.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime());
+	}
+	
+	/**
+	 * @return : a random long
+	 */
+	public long nextLong()
+	{
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+	
+	/**
+	 * @return : a random double, at least 0 and less than 1, replaces Math.random()
+	 */
+	public double nextDouble()
+	{
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+	
+	/**
+	 * @return : a new generator, seeded by this one, that gives numbers independent from this one
+	 */
+	public GameRandom split()
+	{
+		return new GameRandom(nextLong());
+	}
+	
+	/**
+	 * @return : a generator in the same state as this one, it will give the same numbers
+	 */
+	public GameRandom copy()
+	{
+		GameRandom copy = new GameRandom(seed);
+		copy.state = this.state;
+		return copy;
+	}
+	
+	/**
+	 * @return : the seed this generator was created with
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+	
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -17,14 +17,20 @@
 
 package com.theaigames.game.warlight2;
 
-import java.awt.Point;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Scanner;
+import java.util.WeakHashMap;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.theaigames.engine.io.ProtocolEncoder;
 import com.theaigames.game.warlight2.map.Map;
+import com.theaigames.game.warlight2.map.MapTopology;
+import com.theaigames.game.warlight2.map.Owners;
 import com.theaigames.game.warlight2.map.Region;
 import com.theaigames.game.warlight2.map.SuperRegion;
 
@@ -34,55 +40,124 @@ import com.theaigames.game.warlight2.map.SuperRegion;
  * Static class that provides methods to create the map and send
  * information about it to the bots
  * 
+ * The topology of recently used map files is cached, so games on the same
+ * map file share one MapTopology and the file is only parsed once. The setup_map
+ * messages that only depend on the topology are encoded once per topology.
+ * 
  * @author Jim van Eeden <jim@starapple.nl>
  */
 
 public class MapCreator {
 	
+	private static final int MAX_CACHED_TOPOLOGIES = 16;
+	private static final LinkedHashMap<String, CachedTopology> cachedTopologies =
+			new LinkedHashMap<String, CachedTopology>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(java.util.Map.Entry<String, CachedTopology> eldest) {
+					return size() > MAX_CACHED_TOPOLOGIES;
+				}
+			};
+	private static final WeakHashMap<MapTopology, SetupMapMessages> setupMapMessages =
+			new WeakHashMap<MapTopology, SetupMapMessages>(); // dropped when no game uses the topology anymore
+	
 	/**
 	 * @param mapString : string that represents the map to be created
 	 * @return : a Map object to use in the game
 	 */
 	public static Map createMap(String mapString)
 	{
-		Map map = new Map();
+		return new Map(createTopology(mapString));
+	}
+	
+	/**
+	 * @param mapString : string that represents the map
+	 * @return : the regions and superRegions of the map and how they're connected
+	 */
+	public static MapTopology createTopology(String mapString)
+	{
+		MapTopology.Builder topology = new MapTopology.Builder();
 
 		//parse the map string
 		try {
 			JSONObject jsonMap = new JSONObject(mapString);
 			
-			// create SuperRegion objects
+			// add the SuperRegions
 			JSONArray superRegions = jsonMap.getJSONArray("SuperRegions");
 			for (int i = 0; i < superRegions.length(); i++) { 
 				JSONObject jsonSuperRegion = superRegions.getJSONObject(i);
-				map.add(new SuperRegion(jsonSuperRegion.getInt("id"), jsonSuperRegion.getInt("bonus")));
+				topology.addSuperRegion(jsonSuperRegion.getInt("id"), jsonSuperRegion.getInt("bonus"));
 			}
 			
-			// create Region object
+			// add the Regions
 			JSONArray regions = jsonMap.getJSONArray("Regions");
 			for (int i = 0; i < regions.length(); i++) { 
 				JSONObject jsonRegion = regions.getJSONObject(i);
-				SuperRegion superRegion = map.getSuperRegion(jsonRegion.getInt("superRegion"));
-				map.add(new Region(jsonRegion.getInt("id"), superRegion));
+				topology.addRegion(jsonRegion.getInt("id"), jsonRegion.getInt("superRegion"));
 			}
 			
 			// add the Regions' neighbors
 			for (int i = 0; i < regions.length(); i++) { 
 				JSONObject jsonRegion = regions.getJSONObject(i);
-				Region region = map.getRegion(jsonRegion.getInt("id"));
+				int regionId = jsonRegion.getInt("id");
 				JSONArray neighbors = jsonRegion.getJSONArray("neighbors");
 				for (int j = 0; j < neighbors.length(); j++) {
-					Region neighbor = map.getRegion(neighbors.getInt(j));
-					region.addNeighbor(neighbor);
+					topology.addNeighbor(regionId, neighbors.getInt(j));
 				}
 			}
 		} catch (JSONException e) {
 			System.err.println("JSON: Can't parse map string: " + e);
 		}
+
+		return topology.build();
+	}
+	
+	/**
+	 * Gives the topology of the map in given file. It's only read again if the
+	 * file has changed since the last time, or it has dropped out of the cache.
+	 * @param mapFile : file that contains the map
+	 * @return : the regions and superRegions of the map and how they're connected
+	 * @throws IOException
+	 */
+	public static MapTopology getTopology(String mapFile) throws IOException
+	{
+		File file = new File(mapFile);
+		String key = file.getCanonicalPath();
+		long lastModified = file.lastModified();
+		long length = file.length();
+		
+		synchronized(cachedTopologies) {
+			CachedTopology cached = cachedTopologies.get(key);
+			if(cached != null && cached.lastModified == lastModified && cached.length == length)
+				return cached.topology;
+		}
 		
-		map.sort();
+		MapTopology topology = createTopology(readMapFile(file)); // parsed outside the lock, other games can use the cache meanwhile
+		synchronized(cachedTopologies) {
+			cachedTopologies.put(key, new CachedTopology(topology, lastModified, length));
+		}
+		return topology;
+	}
+	
+	/**
+	 * Reads the string from the map file
+	 * @param file : file that contains the map
+	 * @return : string representation of the map
+	 * @throws IOException
+	 */
+	private static String readMapFile(File file) throws IOException
+	{
+		StringBuilder fileContents = new StringBuilder((int) file.length());
+		Scanner scanner = new Scanner(file);
+		String lineSeparator = System.getProperty("line.separator");
 
-		return map;
+		try {
+			while(scanner.hasNextLine()) {
+				fileContents.append(scanner.nextLine() + lineSeparator);
+			}
+			return fileContents.toString();
+		} finally {
+			scanner.close();
+		}
 	}
 	
 	/**
@@ -91,21 +166,22 @@ public class MapCreator {
 	 * Adds wastelands (> 2 armies on a neutral) if wastelandSize > 0.
 	 * @param initMap : the map object that hasn't been set up yet, i.e. no armies yet
 	 * @param wastelandSize : the amount of armies that a wasteland contains
+	 * @param random : decides where the wastelands are
 	 * @return : the fully initialized and setup Map object
 	 */
-	public static Map setupMap(Map initMap, int wastelandSize)
+	public static Map setupMap(Map initMap, int wastelandSize, GameRandom random)
 	{
 		Map map = initMap;
-		for(Region region : map.regions)
+		for(Region region : map.getRegions())
 		{
-			region.setPlayerName("neutral");
+			region.setOwnerId(Owners.NEUTRAL);
 			region.setArmies(2);
 		}
 		if (wastelandSize > 0) {
 			int nrOfWastelands = (int) (map.getSuperRegions().size() / 2); // amount of wastelands is half of the amount of superRegions
 
 			for(int i = 0; i < nrOfWastelands; i++) {
-				double rand = Math.random();
+				double rand = random.nextDouble();
 				int index = (int) (rand*map.getRegions().size());
 				Region wasteland = map.getRegions().get(index);
 				
@@ -154,112 +230,146 @@ public class MapCreator {
 	 */
 	public static void sendSetupMapInfo(Player player, Map map)
 	{
-		String setupSuperRegionsString, setupRegionsString, setupNeighborsString, setupWastelandsString;
-		setupSuperRegionsString = getSuperRegionsString(map);
-		setupRegionsString = getRegionsString(map);
-		setupNeighborsString = getNeighborsString(map);
-		setupWastelandsString = getWastelandsString(map);
+		SetupMapMessages messages = getSetupMapMessages(map.getTopology());
 		
-		player.sendInfo(setupSuperRegionsString);
-		// System.out.println(setupSuperRegionsString);
-		player.sendInfo(setupRegionsString);
-		// System.out.println(setupRegionsString);
-		player.sendInfo(setupNeighborsString);
-		// System.out.println(setupNeighborsString);
-		player.sendInfo(setupWastelandsString);
+		player.startMessage("setup_map super_regions").append(messages.superRegions);
+		player.sendMessage();
+		player.startMessage("setup_map regions").append(messages.regions);
+		player.sendMessage();
+		player.startMessage("setup_map neighbors").append(messages.neighbors);
+		player.sendMessage();
+		sendWastelands(player, map);
 	}
 	
 	/**
-	 * @param map
-	 * @return : the string representation of given map's superRegions
+	 * @param topology
+	 * @return : the encoded setup_map messages for given topology, encoded the first time
+	 * they're needed and after that shared by all games on the topology
 	 */
-	private static String getSuperRegionsString(Map map)
+	private static SetupMapMessages getSetupMapMessages(MapTopology topology)
 	{
-		String superRegionsString = "setup_map super_regions";
-		for(SuperRegion superRegion : map.superRegions)
+		synchronized(setupMapMessages) {
+			SetupMapMessages messages = setupMapMessages.get(topology);
+			if(messages != null)
+				return messages;
+		}
+		
+		SetupMapMessages messages = new SetupMapMessages(topology); // encoded outside the lock, other games can use the cache meanwhile
+		synchronized(setupMapMessages) {
+			setupMapMessages.put(topology, messages);
+		}
+		return messages;
+	}
+	
+	/**
+	 * @param topology
+	 * @return : the representation of given topology's superRegions, without the start of the message
+	 */
+	private static byte[] encodeSuperRegions(MapTopology topology)
+	{
+		ProtocolEncoder superRegionsMessage = new ProtocolEncoder();
+		for(int i = 0; i < topology.getNrOfSuperRegions(); i++)
 		{
-			int id = superRegion.getId();
-			int reward = superRegion.getArmiesReward();
-			superRegionsString = superRegionsString.concat(" " + id + " " + reward);
+			superRegionsMessage.appendSpaced(topology.getSuperRegionId(i)).appendSpaced(topology.getArmiesReward(i));
 		}
-		return superRegionsString;
+		return superRegionsMessage.toByteArray();
 	}
 	
 	/**
-	 * @param map
-	 * @return : the string representation of given map's regions
+	 * @param topology
+	 * @return : the representation of given topology's regions, without the start of the message
 	 */
-	private static String getRegionsString(Map map)
+	private static byte[] encodeRegions(MapTopology topology)
 	{
-		String regionsString = "setup_map regions";
-		for(Region region : map.regions)
+		ProtocolEncoder regionsMessage = new ProtocolEncoder();
+		for(int i = 0; i < topology.getNrOfRegions(); i++)
 		{
-			int id = region.getId();
-			int superRegionId = region.getSuperRegion().getId();
-			regionsString = regionsString.concat(" " + id + " " + superRegionId);
+			regionsMessage.appendSpaced(topology.getRegionId(i))
+				.appendSpaced(topology.getSuperRegionId(topology.getSuperRegionIndexOfRegion(i)));
 		}
-		return regionsString;
+		return regionsMessage.toByteArray();
 	}
 	
 	/**
-	 * @param map
-	 * @return : the string representation of how given map's regions are connected
+	 * Every connection is given once, by the region with the lowest index. Connections are
+	 * always in the neighbors of both regions, so a connection to a region with a lower
+	 * index was already given by that region.
+	 * @param topology
+	 * @return : the representation of how given topology's regions are connected, without
+	 * the start of the message
 	 */
-	private static String getNeighborsString(Map map)
+	private static byte[] encodeNeighbors(MapTopology topology)
 	{
-		String neighborsString = "setup_map neighbors";
-		ArrayList<Point> doneList = new ArrayList<Point>();
-		for(Region region : map.regions)
+		ProtocolEncoder neighborsMessage = new ProtocolEncoder();
+		for(int i = 0; i < topology.getNrOfRegions(); i++)
 		{
-			int id = region.getId();
-			String neighbors = "";
-			for(Region neighbor : region.getNeighbors())
+			int regionStart = neighborsMessage.length();
+			neighborsMessage.appendSpaced(topology.getRegionId(i));
+			char separator = ' ';
+			for(int edge = topology.getFirstEdge(i); edge < topology.getFirstEdge(i + 1); edge++)
 			{
-				if(checkDoneList(doneList, id, neighbor.getId()))
+				int neighbor = topology.getNeighbor(edge);
+				if(neighbor >= i)
 				{
-					neighbors = neighbors.concat("," + neighbor.getId());
-					doneList.add(new Point(id,neighbor.getId()));
+					neighborsMessage.append(separator).append(topology.getRegionId(neighbor));
+					separator = ',';
 				}
 			}
-			if(neighbors.length() != 0)
-			{
-				neighbors = neighbors.replaceFirst(","," ");
-				neighborsString = neighborsString.concat(" " + id + neighbors);
-			}
+			if(separator == ' ') // no new neighbors, leave the region out
+				neighborsMessage.setLength(regionStart);
 		}
-		return neighborsString;
+		return neighborsMessage.toByteArray();
 	}
 	
 	/**
+	 * Sends the representation of given map's wastelands
+	 * @param player
 	 * @param map
-	 * @return : the string representation of given map's wastelands
 	 */
-	private static String getWastelandsString(Map map) 
+	private static void sendWastelands(Player player, Map map) 
 	{
-		String wastelandsString = "setup_map wastelands";
+		ProtocolEncoder wastelandsMessage = player.startMessage("setup_map wastelands");
 		for(Region region : map.getRegions()) 
 		{
 			if(region.getArmies() > 2) 
 			{
-				int id = region.getId();
-				wastelandsString = wastelandsString.concat(" " + id);
+				wastelandsMessage.appendSpaced(region.getId());
 			}
 		}
-		return wastelandsString;
+		player.sendMessage();
+	}
+	
+	/**
+	 * The setup_map messages of a topology, encoded as bytes
+	 */
+	private static class SetupMapMessages
+	{
+		private final byte[] superRegions;
+		private final byte[] regions;
+		private final byte[] neighbors;
+		
+		private SetupMapMessages(MapTopology topology)
+		{
+			this.superRegions = encodeSuperRegions(topology);
+			this.regions = encodeRegions(topology);
+			this.neighbors = encodeNeighbors(topology);
+		}
 	}
 	
 	/**
-	 * Used in getNeighborsString
-	 * @param doneList
-	 * @param regionId
-	 * @param neighborId
-	 * @return
+	 * A topology in the cache, with what the map file looked like when it was read
 	 */
-	private static Boolean checkDoneList(ArrayList<Point> doneList, int regionId, int neighborId)
+	private static class CachedTopology
 	{
-		for(Point p : doneList)
-			if((p.x == regionId && p.y == neighborId) || (p.x == neighborId && p.y == regionId))
-				return false;
-		return true;
+		private final MapTopology topology;
+		private final long lastModified;
+		private final long length;
+		
+		private CachedTopology(MapTopology topology, long lastModified, long length)
+		{
+			this.topology = topology;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
 	}
 }
@@ -30,101 +30,283 @@ import com.theaigames.game.warlight2.move.PlaceArmiesMove;
  * 
  * Parses input from the bots
  * 
+ * Moves are read in one pass over the characters of the input, without
+ * splitting it into strings first, and reading stops at the maximum amount
+ * of moves. The Move objects are kept and reused every round, see releaseMoves().
+ * 
  * @author Jim van Eeden <jim@starapple.nl>
  */
 
 public class Parser {
 	
+	private static final int MAX_MOVE_INDEX = 50; // moves 0 to 50 are parsed
+	private static final int MAX_TOKENS = 5;
+	private static final String PLACE_ARMIES = "place_armies";
+	private static final String ATTACK_TRANSFER = "attack/transfer";
+	
+	// results of parseMove besides a move
+	private static final int MOVE_SKIPPED = 0;
+	private static final int MOVE_PARSED = 1;
+	private static final int MOVE_INCOMPLETE = 2;
+	
+	private static final long INVALID_NUMBER = Long.MIN_VALUE;
+	
 	private Map map;
 	
+	// storage for the moves of this game, reused every round
+	private ArrayList<PlaceArmiesMove> placeArmiesMoves;
+	private ArrayList<AttackTransferMove> attackTransferMoves;
+	private int nrOfPlaceArmiesMoves;
+	private int nrOfAttackTransferMoves;
+	private ArrayList<Move> parsedMoves;
+	private Move lastMove;
+	
+	// start and end of the tokens of the move that is being parsed
+	private int[] tokenStarts;
+	private int[] tokenEnds;
+	
 	public Parser(Map map)
 	{
 		this.map = map;
+		this.placeArmiesMoves = new ArrayList<PlaceArmiesMove>();
+		this.attackTransferMoves = new ArrayList<AttackTransferMove>();
+		this.parsedMoves = new ArrayList<Move>();
+		this.tokenStarts = new int[MAX_TOKENS];
+		this.tokenEnds = new int[MAX_TOKENS];
+	}
+	
+	/**
+	 * Makes all moves parsed so far available for reuse. Call this at the start of a round,
+	 * when no moves of the previous round are used anymore (also not in the game history).
+	 */
+	public void releaseMoves()
+	{
+		nrOfPlaceArmiesMoves = 0;
+		nrOfAttackTransferMoves = 0;
 	}
 	
 	/**
 	 * Parses sequence of moves given by player
 	 * @param input : input string
 	 * @param player : player who gave the input
-	 * @return : list parsed of moves
+	 * @return : list parsed of moves, the list is reused by the next call
 	 */
 	public ArrayList<Move> parseMoves(String input, Player player)
 	{
-		ArrayList<Move> moves = new ArrayList<Move>();
+		parsedMoves.clear();
 		
-		try {
-			input = input.trim();
-			if(input.length() <= 1)
-				return moves;
+		if(input == null) {
+			addToDump(player, "Move input is null\n");
+			return parsedMoves;
+		}
+		
+		int start = 0;
+		int end = input.length();
+		while(start < end && input.charAt(start) <= ' ')
+			start++;
+		while(end > start && input.charAt(end - 1) <= ' ')
+			end--;
+		if(end - start <= 1)
+			return parsedMoves;
+		
+		// empty moves at the end are ignored
+		while(end > start && input.charAt(end - 1) == ',')
+			end--;
+		
+		int moveStart = start;
+		for(int i = 0; moveStart <= end && end > start; i++)
+		{
+			if(i > MAX_MOVE_INDEX) {
+				addToDump(player, "Maximum number of moves reached, max 50 moves are allowed");
+				break;
+			}
 			
-			String[] split = input.split(",");
+			int moveEnd = input.indexOf(',', moveStart);
+			if(moveEnd < 0 || moveEnd > end)
+				moveEnd = end;
 			
-			for(int i=0; i<split.length; i++)
-			{
-				if(i > 50){
-					player.getBot().addToDump("Maximum number of moves reached, max 50 moves are allowed");
-					break;
-				}
-				Move move = parseMove(split[i], player);
-				if(move != null)
-					moves.add(move);
+			int result = parseMove(input, moveStart, moveEnd, player);
+			if(result == MOVE_INCOMPLETE) { // the rest of the input is skipped
+				addToDump(player, "Move input is null\n");
+				break;
 			}
+			if(result == MOVE_PARSED)
+				parsedMoves.add(lastMove);
+			
+			moveStart = moveEnd + 1;
 		}
-		catch(Exception e) {
-			player.getBot().addToDump("Move input is null\n");
-		}
-		return moves;
+		return parsedMoves;
 	}
 
 	/**
-	 * Parses a move from input string given by player
-	 * @param input : input string
+	 * Parses a move from input given by player, the move is stored in lastMove
+	 * @param input : full input
+	 * @param start : start of the move in the input
+	 * @param end : end of the move in the input
 	 * @param player : player who gave the input
-	 * @return : parsed move
+	 * @return : MOVE_PARSED, MOVE_SKIPPED if it's not a correct move or MOVE_INCOMPLETE if parts
+	 * of the move are missing
 	 */
-	private Move parseMove(String input, Player player)
+	private int parseMove(String input, int start, int end, Player player)
 	{
-		int armies = -1;
+		int nrOfTokens = tokenize(input, start, end);
 		
-		String[] split = input.trim().split(" ");
-
-		if(!split[0].equals(player.getName()))
+		if(!tokenEquals(input, 0, player.getName()))
 		{
-			errorOut("Incorrect player name or move format incorrect", input, player);
-			return null;
-		}	
+			errorOut("Incorrect player name or move format incorrect", input, start, end, player);
+			return MOVE_SKIPPED;
+		}
+		if(nrOfTokens < 2)
+			return MOVE_INCOMPLETE;
 		
-		if(split[1].equals("place_armies"))		
+		if(tokenEquals(input, 1, PLACE_ARMIES))
+		{
+			if(nrOfTokens < 3)
+				return MOVE_INCOMPLETE;
+			
+			Region region = parseRegion(input, 2, start, end, player);
+			long armies = nrOfTokens > 3 ? parseNumber(input, tokenStarts[3], tokenEnds[3]) : INVALID_NUMBER;
+			if(armies == INVALID_NUMBER) {
+				errorOut("Number of armies input incorrect", input, start, end, player);
+				armies = -1;
+			}
+			
+			if(!(region == null || armies == -1)) {
+				lastMove = nextPlaceArmiesMove(player.getName(), region, (int) armies);
+				return MOVE_PARSED;
+			}
+			return MOVE_SKIPPED;
+		}
+		else if(tokenEquals(input, 1, ATTACK_TRANSFER))
 		{
-			Region region = null;
+			if(nrOfTokens < 3)
+				return MOVE_INCOMPLETE;
+			Region fromRegion = parseRegion(input, 2, start, end, player);
+			if(nrOfTokens < 4)
+				return MOVE_INCOMPLETE;
+			Region toRegion = parseRegion(input, 3, start, end, player);
+			
+			long armies = nrOfTokens > 4 ? parseNumber(input, tokenStarts[4], tokenEnds[4]) : INVALID_NUMBER;
+			if(armies == INVALID_NUMBER) {
+				errorOut("Number of armies input incorrect", input, start, end, player);
+				armies = -1;
+			}
 
-			region = parseRegion(split[2], input, player);
+			if(!(fromRegion == null || toRegion == null || armies == -1)) {
+				lastMove = nextAttackTransferMove(player.getName(), fromRegion, toRegion, (int) armies);
+				return MOVE_PARSED;
+			}
+			return MOVE_SKIPPED;
+		}
 
-			try { armies = Integer.parseInt(split[3]); }
-			catch(Exception e) { errorOut("Number of armies input incorrect", input, player);}
+		errorOut("Bot's move format incorrect", input, start, end, player);
+		return MOVE_SKIPPED;
+	}
+	
+	/**
+	 * Finds the first tokens of a move, which are separated by single spaces
+	 * @return : amount of tokens, at most MAX_TOKENS
+	 */
+	private int tokenize(String input, int start, int end)
+	{
+		while(start < end && input.charAt(start) <= ' ')
+			start++;
+		while(end > start && input.charAt(end - 1) <= ' ')
+			end--;
 		
-			if(!(region == null || armies == -1))
-				return new PlaceArmiesMove(player.getName(), region, armies);
-			return null;
+		int nrOfTokens = 0;
+		int tokenStart = start;
+		while(nrOfTokens < MAX_TOKENS)
+		{
+			int tokenEnd = input.indexOf(' ', tokenStart);
+			if(tokenEnd < 0 || tokenEnd > end)
+				tokenEnd = end;
+			tokenStarts[nrOfTokens] = tokenStart;
+			tokenEnds[nrOfTokens] = tokenEnd;
+			nrOfTokens++;
+			if(tokenEnd == end)
+				break;
+			tokenStart = tokenEnd + 1;
+		}
+		return nrOfTokens;
+	}
+	
+	private boolean tokenEquals(String input, int token, String value)
+	{
+		int length = tokenEnds[token] - tokenStarts[token];
+		return length == value.length() && input.regionMatches(tokenStarts[token], value, 0, length);
+	}
+	
+	/**
+	 * Reads an int the same way as Integer.parseInt, without exceptions
+	 * @return : the number, or INVALID_NUMBER if it's not an int
+	 */
+	private static long parseNumber(String input, int start, int end)
+	{
+		if(start >= end)
+			return INVALID_NUMBER;
+		
+		boolean negative = false;
+		char first = input.charAt(start);
+		if(first == '-' || first == '+') {
+			negative = first == '-';
+			start++;
+			if(start == end)
+				return INVALID_NUMBER;
 		}
-		else if(split[1].equals("attack/transfer"))
+		
+		long number = 0;
+		for(int i = start; i < end; i++)
 		{
-			Region fromRegion = null;
-			Region toRegion = null;
-			
-			fromRegion = parseRegion(split[2], input, player);
-			toRegion = parseRegion(split[3], input, player);
-			
-			try { armies = Integer.parseInt(split[4]); }
-			catch(Exception e) { errorOut("Number of armies input incorrect", input, player);}
-
-			if(!(fromRegion == null || toRegion == null || armies == -1))
-				return new AttackTransferMove(player.getName(), fromRegion, toRegion, armies);
+			int digit = Character.digit(input.charAt(i), 10);
+			if(digit < 0)
+				return INVALID_NUMBER;
+			number = number * 10 + digit;
+			if(number > (long) Integer.MAX_VALUE + 1)
+				return INVALID_NUMBER;
+		}
+		if(negative)
+			return -number;
+		if(number > Integer.MAX_VALUE)
+			return INVALID_NUMBER;
+		return number;
+	}
+	
+	/**
+	 * @param input : full input
+	 * @param token : the token that has the region id
+	 * @param start : start of the move, used for error logging
+	 * @param end : end of the move, used for error logging
+	 * @param player : player who gave the input
+	 * @return : parsed region
+	 */
+	private Region parseRegion(String input, int token, int start, int end, Player player)
+	{
+		long id = parseNumber(input, tokenStarts[token], tokenEnds[token]);
+		if(id == INVALID_NUMBER) {
+			errorOut("Region id input incorrect", input, start, end, player);
 			return null;
 		}
-
-		errorOut("Bot's move format incorrect", input, player);
-		return null;
+		
+		return map.getRegion((int) id);
+	}
+	
+	private PlaceArmiesMove nextPlaceArmiesMove(String playerName, Region region, int armies)
+	{
+		if(nrOfPlaceArmiesMoves == placeArmiesMoves.size())
+			placeArmiesMoves.add(new PlaceArmiesMove(playerName, region, armies));
+		PlaceArmiesMove move = placeArmiesMoves.get(nrOfPlaceArmiesMoves++);
+		move.set(playerName, region, armies);
+		return move;
+	}
+	
+	private AttackTransferMove nextAttackTransferMove(String playerName, Region fromRegion, Region toRegion, int armies)
+	{
+		if(nrOfAttackTransferMoves == attackTransferMoves.size())
+			attackTransferMoves.add(new AttackTransferMove(playerName, fromRegion, toRegion, armies));
+		AttackTransferMove move = attackTransferMoves.get(nrOfAttackTransferMoves++);
+		move.set(playerName, fromRegion, toRegion, armies);
+		return move;
 	}
 	
 	/**
@@ -135,15 +317,13 @@ public class Parser {
 	 */
 	private Region parseRegion(String regionId, String input, Player player)
 	{
-		int id = -1;
-		Region region;
-		
-		try { id = Integer.parseInt(regionId); }
-		catch(Exception e) { errorOut("Region id input incorrect", input, player); return null;}
-		
-		region = map.getRegion(id);
+		long id = regionId != null ? parseNumber(regionId, 0, regionId.length()) : INVALID_NUMBER;
+		if(id == INVALID_NUMBER) {
+			errorOut("Region id input incorrect", input, player);
+			return null;
+		}
 		
-		return region;
+		return map.getRegion((int) id);
 	}
 	
 	/**
@@ -174,7 +354,21 @@ public class Parser {
 	 */
 	private void errorOut(String error, String input, Player player)
 	{
-		player.getBot().addToDump("Parse error: " + error + " (" + input + ")\n");
+		addToDump(player, "Parse error: " + error + " (" + input + ")\n");
+	}
+	
+	private void errorOut(String error, String input, int start, int end, Player player)
+	{
+		errorOut(error, input.substring(start, end), player);
+	}
+	
+	/**
+	 * Adds text to the player's dump, players of a forked game have no bot and no dump
+	 */
+	private static void addToDump(Player player, String text)
+	{
+		if(player.getBot() != null)
+			player.getBot().addToDump(text);
 	}
 
 }
@@ -19,8 +19,11 @@ package com.theaigames.game.warlight2;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
-import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.BotPlayer;
+import com.theaigames.engine.io.ProtocolEncoder;
+import com.theaigames.game.warlight2.map.Owners;
 import com.theaigames.game.warlight2.map.Region;
 
 /**
@@ -35,21 +38,50 @@ import com.theaigames.game.warlight2.map.Region;
 public class Player {
 	
 	private String name;
-	private IOPlayer bot;
+	private int ownerId; //id of the name in Owners
+	private BotPlayer bot;
 	private int armiesPerTurn; 
 	private int armiesLeft;    //variable armies that can be added, changes with superRegions fully owned and moves already placed.
 	private long timeBank;
 	private long maxTimeBank;
 	private long timePerMove;
+	private ProtocolEncoder message;
+	private boolean deltaUpdateMap;
+	private long requestTime; // System.nanoTime() when the last request was sent to the bot
 	
-	public Player(String name, IOPlayer bot, int startingArmies, long maxTimeBank, long timePerMove)
+	public Player(String name, BotPlayer bot, int startingArmies, long maxTimeBank, long timePerMove)
 	{
 		this.name = name;
+		this.ownerId = Owners.getId(name);
 		this.bot = bot;
 		this.armiesPerTurn = startingArmies; //start with 5 armies per turn
 		this.timeBank = maxTimeBank;
 		this.maxTimeBank = maxTimeBank;
 		this.timePerMove = timePerMove;
+		this.message = new ProtocolEncoder();
+	}
+	
+	/**
+	 * Creates a copy of given player without a bot, for a forked game
+	 * @param player : the player to copy
+	 */
+	private Player(Player player)
+	{
+		this.name = player.name;
+		this.ownerId = player.ownerId;
+		this.armiesPerTurn = player.armiesPerTurn;
+		this.armiesLeft = player.armiesLeft;
+		this.timeBank = player.timeBank;
+		this.maxTimeBank = player.maxTimeBank;
+		this.timePerMove = player.timePerMove;
+	}
+	
+	/**
+	 * @return A copy of this Player that has no bot, so nothing can be sent to it or
+	 * asked from it. Used by Processor.fork().
+	 */
+	public Player getHeadlessCopy() {
+		return new Player(this);
 	}
 	
 	/**
@@ -59,6 +91,20 @@ public class Player {
 		armiesLeft = n;
 	}
 	
+	/**
+	 * @param deltaUpdateMap : true if the bot only gets the changed regions in update_map
+	 */
+	public void setDeltaUpdateMap(boolean deltaUpdateMap) {
+		this.deltaUpdateMap = deltaUpdateMap;
+	}
+	
+	/**
+	 * @return True if the bot only gets the changed regions in update_map
+	 */
+	public boolean hasDeltaUpdateMap() {
+		return deltaUpdateMap;
+	}
+	
 	/**
 	 * @return The String name of this Player
 	 */
@@ -66,6 +112,13 @@ public class Player {
 		return name;
 	}
 	
+	/**
+	 * @return The id of this Player as owner of regions, see Owners
+	 */
+	public int getOwnerId() {
+		return ownerId;
+	}
+	
 	/**
 	 * @return The time left in this player's time bank
 	 */
@@ -76,7 +129,7 @@ public class Player {
 	/**
 	 * @return The Bot object of this Player
 	 */
-	public IOPlayer getBot() {
+	public BotPlayer getBot() {
 		return bot;
 	}
 	
@@ -124,6 +177,28 @@ public class Player {
 		}
 	}
 	
+	/**
+	 * Starts a new message for the bot, the encoder is reused for every message
+	 * @param start : first part of the message
+	 * @return : encoder to add the rest of the message to, send it with sendMessage()
+	 */
+	public ProtocolEncoder startMessage(String start)
+	{
+		return this.message.reset().append(start);
+	}
+	
+	/**
+	 * Sends the message that was started with startMessage() to the bot
+	 */
+	public void sendMessage()
+	{
+		try {
+			this.bot.process(this.message);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
 	/**
 	 * Asks the bot for his starting region pick and returns the answer
 	 * @param pickableRegions : regions the bot can pick from
@@ -131,24 +206,16 @@ public class Player {
 	 */
 	public String requestStartingArmies(ArrayList<Region> pickableRegions) 
 	{
-		String output = "pick_starting_region " + this.timeBank;
-		long startTime = System.currentTimeMillis();
+		ProtocolEncoder output = startMessage("pick_starting_region").appendSpaced(this.timeBank);
+		this.requestTime = System.nanoTime();
 		
 		for (Region region : pickableRegions) {
-			output = output.concat(" " + region.getId());
-		}
-		
-		try {
-			this.bot.process(output, "input");
-		} catch (IOException e) {
-			e.printStackTrace();
+			output.appendSpaced(region.getId());
 		}
 		
-		String response = this.bot.getResponse(this.timeBank);
-		long timeElapsed = System.currentTimeMillis() - startTime;
-		updateTimeBank(timeElapsed);
+		sendMessage();
 		
-		return response;
+		return receiveResponse();
 	}
 	
 	/**
@@ -156,7 +223,8 @@ public class Player {
 	 * @return : the bot's output
 	 */
 	public String requestPlaceArmiesMoves() {
-		return requestMoves("place_armies");
+		sendPlaceArmiesRequest();
+		return receiveResponse();
 	}
 	
 	/**
@@ -164,26 +232,48 @@ public class Player {
 	 * @return : the bot's output
 	 */
 	public String requestAttackTransferMoves() {
-		return requestMoves("attack/transfer");
+		sendAttackTransferRequest();
+		return receiveResponse();
+	}
+	
+	/**
+	 * Asks the bot for his placeArmiesMoves without waiting for the answer,
+	 * which is returned by receiveResponse()
+	 */
+	public void sendPlaceArmiesRequest() {
+		sendMoveRequest("place_armies");
 	}
 	
 	/**
-	 * Asks the bot for given move type and returns the answer
+	 * Asks the bot for his attackTransferMoves without waiting for the answer,
+	 * which is returned by receiveResponse()
+	 */
+	public void sendAttackTransferRequest() {
+		sendMoveRequest("attack/transfer");
+	}
+	
+	/**
+	 * Asks the bot for given move type
 	 * @param moveType : attackTransfer move of placeArmies move
-	 * @return : the bot's output
 	 */
-	private String requestMoves(String moveType) 
+	private void sendMoveRequest(String moveType) 
 	{
-		long startTime = System.currentTimeMillis();
+		this.requestTime = System.nanoTime();
 		
-		try {
-			this.bot.process(String.format("go %s %d", moveType, this.timeBank), "input");
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		
-		String response = this.bot.getResponse(this.timeBank);
-		long timeElapsed = System.currentTimeMillis() - startTime;
+		startMessage("go ").append(moveType).appendSpaced(this.timeBank);
+		sendMessage();
+	}
+	
+	/**
+	 * Waits for the answer to the last request and updates the time bank. Only the time
+	 * until the bot answered is used, so the bot isn't charged for the time the engine
+	 * spent waiting for the other bot before asking for this answer.
+	 * @return : the bot's output
+	 */
+	public String receiveResponse()
+	{
+		String response = this.bot.getResponse(this.requestTime, this.timeBank);
+		long timeElapsed = TimeUnit.NANOSECONDS.toMillis(Math.max(this.bot.getResponseTime() - this.requestTime, 0));
 		updateTimeBank(timeElapsed);
 		
 		return response;
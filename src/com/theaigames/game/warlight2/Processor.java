@@ -18,15 +18,18 @@
 package com.theaigames.game.warlight2;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedList;
 
+import com.theaigames.engine.io.ProtocolEncoder;
 import com.theaigames.game.warlight2.map.Map;
+import com.theaigames.game.warlight2.map.Owners;
 import com.theaigames.game.warlight2.map.Region;
 import com.theaigames.game.warlight2.map.SuperRegion;
 import com.theaigames.game.warlight2.move.AttackTransferMove;
+import com.theaigames.game.warlight2.move.GameHistory;
 import com.theaigames.game.warlight2.move.Move;
 import com.theaigames.game.warlight2.move.MoveQueue;
-import com.theaigames.game.warlight2.move.MoveResult;
 import com.theaigames.game.warlight2.move.PlaceArmiesMove;
 
 /**
@@ -42,40 +45,86 @@ public class Processor {
 	private Map map;
 	private Parser parser;
 	private int roundNr;
-	private LinkedList<MoveResult> pickedStartingRegions;
-	private LinkedList<MoveResult> fullPlayedGame;
-	private LinkedList<MoveResult> player1PlayedGame;
-	private LinkedList<MoveResult> player2PlayedGame;
+	private GameHistory history;
 	private LinkedList<Move> opponentMovesPlayer1;
 	private LinkedList<Move> opponentMovesPlayer2;
 	private MoveQueue moveQueue;
 	private String pickableStartingRegionsString;
+	private GameRandom random;
+	private SentMap sentMapPlayer1;
+	private SentMap sentMapPlayer2;
+	private final BitSet usedEdges; //edge indices of the connections that have been attacked/transfered over this round
+	private final int[] usableArmies; //region index -> armies that can still be used this round
+	private final boolean headless; //true for a fork: no bots, history or messages
 	
-	private final double LUCK_MODIFIER = 0.16;
 	private final int MINIMAL_STARTING_PICKS = 6;
 
-	public Processor(Map initMap, Player player1, Player player2)
+	/**
+	 * @param initMap : the map the game is played on
+	 * @param player1
+	 * @param player2
+	 * @param random : source of all randomness in the game, the move queue gets a split of it
+	 */
+	public Processor(Map initMap, Player player1, Player player2, GameRandom random)
 	{
 		this.map = initMap;
 		this.player1 = player1;
 		this.player2 = player2;
-		moveQueue = new MoveQueue(player1, player2);
+		this.random = random;
+		this.usedEdges = new BitSet(map.getTopology().getNrOfEdges());
+		this.usableArmies = new int[map.getNrOfRegions()];
+		this.headless = false;
+		moveQueue = new MoveQueue(player1, player2, random.split());
 		
 		parser = new Parser(map);
 
-		fullPlayedGame = new LinkedList<MoveResult>();
-		player1PlayedGame = new LinkedList<MoveResult>();
-		player2PlayedGame = new LinkedList<MoveResult>();
 		opponentMovesPlayer1 = new LinkedList<Move>();
 		opponentMovesPlayer2 = new LinkedList<Move>();
 		pickableStartingRegionsString = "";
 
-		fullPlayedGame.add(new MoveResult(null, map.getMapCopy())); //empty map
-		player1PlayedGame.add(new MoveResult(null, map.getMapCopy()));
-		player2PlayedGame.add(new MoveResult(null, map.getMapCopy()));
-		fullPlayedGame.add(null); //round 0
-		player1PlayedGame.add(null);
-		player2PlayedGame.add(null);
+		history = new GameHistory(map);
+		history.addMoveResult(null, true, true, false); //empty map
+		history.addRoundEnd(); //round 0
+	}
+	
+	/**
+	 * Creates a fork of given processor, see fork()
+	 * @param processor : the game to fork
+	 */
+	private Processor(Processor processor)
+	{
+		this.map = processor.map.getMapCopy();
+		this.player1 = processor.player1.getHeadlessCopy();
+		this.player2 = processor.player2.getHeadlessCopy();
+		this.random = processor.random.copy();
+		this.roundNr = processor.roundNr;
+		this.usedEdges = new BitSet(map.getTopology().getNrOfEdges());
+		this.usableArmies = new int[map.getNrOfRegions()];
+		this.headless = true;
+		moveQueue = processor.moveQueue.getEmptyCopy(player1, player2);
+		
+		parser = new Parser(map);
+	}
+	
+	/**
+	 * Forks the game between two rounds, to try out moves without changing this game.
+	 * The fork gets its own copy of the region owners and armies, the armies each player
+	 * can place and the random generators, so it plays on exactly like this game would
+	 * with the same moves. It has no bots, history or messages: its rounds are played
+	 * with simulateRound() and it can be forked again. The methods that talk to the bots
+	 * throw an IllegalStateException on a fork.
+	 * @return : the forked game
+	 */
+	public Processor fork() {
+		return new Processor(this);
+	}
+	
+	/**
+	 * @throws IllegalStateException : if this is a fork, which has no bots or history
+	 */
+	private void checkNotHeadless() {
+		if(headless)
+			throw new IllegalStateException("headless fork");
 	}
 	
 	/**
@@ -85,6 +134,7 @@ public class Processor {
 	 */
 	public void distributeStartingRegions() 
 	{
+		checkNotHeadless();
 		ArrayList<Region> pickableRegions = new ArrayList<Region>();
 		ArrayList<Region> player1Regions = new ArrayList<Region>();
 		ArrayList<Region> player2Regions = new ArrayList<Region>();
@@ -101,7 +151,7 @@ public class Processor {
 
 			int nrOfRegions = nonWasteLandRegions.size();
 			if (nrOfRegions > 0) {
-				double rand = Math.random();
+				double rand = random.nextDouble();
 				int index = (int) (rand*nrOfRegions);
 				Region randomRegion = nonWasteLandRegions.get(index);
 				pickableRegions.add(randomRegion);
@@ -134,7 +184,7 @@ public class Processor {
 			
 			Region region = parser.parseStartingRegion(currentPlayer.requestStartingArmies(pickableRegions), pickableRegions, currentPlayer);
 			if(region == null) { // get random region
-				double rand = Math.random();
+				double rand = random.nextDouble();
 				int index = (int) (rand*pickableRegions.size());
 				region = pickableRegions.get(index);
 			}
@@ -144,13 +194,11 @@ public class Processor {
 			else
 				player2Regions.add(region);
 
-			region.setPlayerName(currentPlayer.getName());
+			region.setOwnerId(currentPlayer.getOwnerId());
 
 			// storing the picking phase for output
 			PlaceArmiesMove pickMove = new PlaceArmiesMove(currentPlayer.getName(), region, 2);
-			fullPlayedGame.add(new MoveResult(pickMove, map.getMapCopy()));
-			player1PlayedGame.add(new MoveResult(pickMove, map.getMapCopy()));
-			player2PlayedGame.add(new MoveResult(pickMove, map.getMapCopy()));
+			history.addMoveResult(pickMove, true, true, false);
 
 			pickableRegions.remove(region);
 			i++;
@@ -160,12 +208,8 @@ public class Processor {
 		sendStartingRegionsInfO(player2, player1Regions, false);
 		
 		// start of the output for after the picking phase
-		fullPlayedGame.add(new MoveResult(null, map.getMapCopy()));
-		player1PlayedGame.add(new MoveResult(null, map.getVisibleMapCopyForPlayer(player1)));
-		player2PlayedGame.add(new MoveResult(null, map.getVisibleMapCopyForPlayer(player2)));
-		fullPlayedGame.add(null);
-		player1PlayedGame.add(null);
-		player2PlayedGame.add(null);
+		history.addMoveResult(null, true, true, true);
+		history.addRoundEnd();
 	}
 
 	/**
@@ -186,7 +230,7 @@ public class Processor {
 
 		int k = (actualPicks - MINIMAL_STARTING_PICKS) / 2;
 		for (int i=0; i<k; i++) { 
-			double rand = Math.random();
+			double rand = random.nextDouble();
 			if(rand < 0.25) { // 0.25 chance amount is decremented by 1 for each player
 				actualPicks -= 2;
 			}
@@ -201,47 +245,79 @@ public class Processor {
 	 */
 	public void playRound(int roundNumber)
 	{
+		checkNotHeadless();
 		this.roundNr = roundNumber;
+		parser.releaseMoves(); // the moves of the previous round have been written and sent
 		
-		getMoves(player1.requestPlaceArmiesMoves(), player1);
-		getMoves(player2.requestPlaceArmiesMoves(), player2);
+		// both bots get the request before waiting for an answer, so they think at the same time
+		player1.sendPlaceArmiesRequest();
+		player2.sendPlaceArmiesRequest();
+		getMoves(player1.receiveResponse(), player1);
+		getMoves(player2.receiveResponse(), player2);
 		
 		executePlaceArmies();
 		
-		getMoves(player1.requestAttackTransferMoves(), player1);
-		getMoves(player2.requestAttackTransferMoves(), player2);
+		player1.sendAttackTransferRequest();
+		player2.sendAttackTransferRequest();
+		getMoves(player1.receiveResponse(), player1);
+		getMoves(player2.receiveResponse(), player2);
 		
 		executeAttackTransfer();
 		
 		moveQueue.clear();
 		recalculateStartingArmies();
 		sendAllInfo();	
-		fullPlayedGame.add(null); //indicates round end	
-		player1PlayedGame.add(null);
-		player2PlayedGame.add(null);
+		history.addRoundEnd();
 		roundNr++;	
 	}
 	
 	/**
-	 * Queues the moves given by the player
+	 * Plays one round of a fork with given moves instead of asking the bots. Nothing is
+	 * recorded or sent, so a game with bots can't play its rounds this way.
+	 * @param placeArmiesPlayer1 : player1's place_armies moves, as a bot would give them
+	 * @param placeArmiesPlayer2 : player2's place_armies moves
+	 * @param attackTransferPlayer1 : player1's attack/transfer moves
+	 * @param attackTransferPlayer2 : player2's attack/transfer moves
+	 * @throws IllegalStateException : if this isn't a fork
+	 */
+	public void simulateRound(String placeArmiesPlayer1, String placeArmiesPlayer2,
+			String attackTransferPlayer1, String attackTransferPlayer2)
+	{
+		if(!headless)
+			throw new IllegalStateException("not a fork");
+		parser.releaseMoves();
+		
+		getMoves(placeArmiesPlayer1, player1);
+		getMoves(placeArmiesPlayer2, player2);
+		executePlaceArmies();
+		
+		getMoves(attackTransferPlayer1, player1);
+		getMoves(attackTransferPlayer2, player2);
+		executeAttackTransfer();
+		
+		moveQueue.clear();
+		recalculateStartingArmies();
+		roundNr++;
+	}
+	
+	/**
+	 * Queues the moves given by the player, package-private for the benchmarks
 	 * @param movesInput : bot's output
 	 * @param player : player who the output belongs to
 	 */
-	private void getMoves(String movesInput, Player player)
+	void getMoves(String movesInput, Player player)
 	{
 		ArrayList<Move> moves = parser.parseMoves(movesInput, player);
 		
 		for(Move move : moves)
 		{
-			try //PlaceArmiesMove
-			{
-				PlaceArmiesMove plm = (PlaceArmiesMove) move;
-				queuePlaceArmies(plm);
-			}
-			catch(Exception e) //AttackTransferMove
-			{
-				AttackTransferMove atm = (AttackTransferMove) move;
-				queueAttackTransfer(atm);
+			switch(move.getKind()) {
+			case PLACE_ARMIES:
+				queuePlaceArmies((PlaceArmiesMove) move);
+				break;
+			case ATTACK_TRANSFER:
+				queueAttackTransfer((AttackTransferMove) move);
+				break;
 			}
 		}
 	}
@@ -261,7 +337,7 @@ public class Processor {
 		int armies = plm.getArmies();
 		
 		//check legality
-		if(region.ownedByPlayer(player.getName()))
+		if(region.ownedByPlayer(player))
 		{
 			if(armies < 1)
 			{
@@ -299,7 +375,7 @@ public class Processor {
 		int armies = atm.getArmies();
 		
 		//check legality
-		if(fromRegion.ownedByPlayer(player.getName()))
+		if(fromRegion.ownedByPlayer(player))
 		{
 			if(fromRegion.isNeighbor(toRegion))
 			{
@@ -327,39 +403,47 @@ public class Processor {
 			if(move.getIllegalMove().equals("")) //the move is not illegal
 				move.getRegion().setArmies(move.getRegion().getArmies() + move.getArmies());
 			
-			Map mapCopy = map.getMapCopy();
-			fullPlayedGame.add(new MoveResult(move, mapCopy));
-			if(map.visibleRegionsForPlayer(player1).contains(move.getRegion()))
+			if(!headless)
 			{
-				player1PlayedGame.add(new MoveResult(move, map.getVisibleMapCopyForPlayer(player1))); //for the game file
-				if(move.getPlayerName().equals(player2.getName()))
-					opponentMovesPlayer1.add(move); //for the opponent_moves output
-			}
-			if(map.visibleRegionsForPlayer(player2).contains(move.getRegion()))
-			{
-				player2PlayedGame.add(new MoveResult(move, map.getVisibleMapCopyForPlayer(player2))); //for the game file
-				if(move.getPlayerName().equals(player1.getName()))
-					opponentMovesPlayer2.add(move); //for the opponent_moves output
+				boolean visibleForPlayer1 = map.isVisibleForPlayer(move.getRegion(), player1);
+				boolean visibleForPlayer2 = map.isVisibleForPlayer(move.getRegion(), player2);
+				recordMove(move, visibleForPlayer1, visibleForPlayer2);
 			}
 		}
 	}
+	
+	/**
+	 * Stores an executed move for the game file and for the opponent_moves output
+	 * @param move : the move, legal or not
+	 * @param visibleForPlayer1 : true if player1 could see the move
+	 * @param visibleForPlayer2 : true if player2 could see the move
+	 */
+	private void recordMove(Move move, boolean visibleForPlayer1, boolean visibleForPlayer2)
+	{
+		history.addMoveResult(move, visibleForPlayer1, visibleForPlayer2, true); //for the game file
+		if(visibleForPlayer1)
+		{
+			if(move.getPlayerName().equals(player2.getName()))
+				opponentMovesPlayer1.add(move); //for the opponent_moves output
+		}
+		if(visibleForPlayer2)
+		{
+			if(move.getPlayerName().equals(player1.getName()))
+				opponentMovesPlayer2.add(move); //for the opponent_moves output
+		}
+	}
 
 	/**
 	 * Executes all attackTransfer moves currently in the queue
 	 * Does a lot of legality checks and determines whether it is an attack or a transfer
 	 * Also stores the moves for the visualizer
+	 * Package-private for the benchmarks
 	 */
-	private void executeAttackTransfer()
+	void executeAttackTransfer()
 	{
-		LinkedList<Region> visibleRegionsPlayer1Map = map.visibleRegionsForPlayer(player1);
-		LinkedList<Region> visibleRegionsPlayer2Map = map.visibleRegionsForPlayer(player2);
-		LinkedList<Region> visibleRegionsPlayer1OldMap = visibleRegionsPlayer1Map;
-		LinkedList<Region> visibleRegionsPlayer2OldMap = visibleRegionsPlayer2Map;
-		ArrayList<ArrayList<Integer>> usedRegions = new ArrayList<ArrayList<Integer>>();
-		for(int i = 0; i <= map.getRegions().size(); i++) {
-			usedRegions.add(new ArrayList<Integer>());
-		}
-		Map oldMap = map.getMapCopy();
+		usedEdges.clear();
+		for(int i = 0; i < usableArmies.length; i++)
+			usableArmies[i] = map.getArmies(i); // armies at the start of the round
 
 		int moveNr = 1;
 		Boolean previousMoveWasIllegal = false;
@@ -367,35 +451,38 @@ public class Processor {
 		while(moveQueue.hasNextAttackTransferMove())
 		{	
 			AttackTransferMove move = moveQueue.getNextAttackTransferMove(moveNr, previousMovePlayer, previousMoveWasIllegal);
+			boolean toRegionWasVisiblePlayer1 = !headless && map.isVisibleForPlayer(move.getToRegion(), player1);
+			boolean toRegionWasVisiblePlayer2 = !headless && map.isVisibleForPlayer(move.getToRegion(), player2);
 
 			if(move.getIllegalMove().equals("")) //the move is not illegal
 			{
 				Region fromRegion = move.getFromRegion();
-				Region oldFromRegion = oldMap.getRegion(move.getFromRegion().getId());
-				Region oldToRegion = oldMap.getRegion(move.getToRegion().getId());
 				Region toRegion = move.getToRegion();
+				int from = fromRegion.getIndex();
+				int to = toRegion.getIndex();
+				int edge = map.getTopology().getEdgeIndex(from, to);
 				Player player = getPlayer(move.getPlayerName());
 				
-				if(fromRegion.ownedByPlayer(player.getName())) //check if the fromRegion still belongs to this player
+				if(fromRegion.ownedByPlayer(player)) //check if the fromRegion still belongs to this player
 				{
-					if(!usedRegions.get(fromRegion.getId()).contains(toRegion.getId())) //between two regions there can only be attacked/transfered once
+					if(!usedEdges.get(edge)) //between two regions there can only be attacked/transfered once
 					{
-						if(oldFromRegion.getArmies() > 1) //there are still armies that can be used
+						if(usableArmies[from] > 1) //there are still armies that can be used
 						{
-							if(oldFromRegion.getArmies() < fromRegion.getArmies() && oldFromRegion.getArmies() - 1 < move.getArmies()) //not enough armies on fromRegion at the start of the round?
-								move.setArmies(oldFromRegion.getArmies() - 1); //move the maximal number.
-							else if(oldFromRegion.getArmies() >= fromRegion.getArmies() && fromRegion.getArmies() - 1 < move.getArmies()) //not enough armies on fromRegion currently?
+							if(usableArmies[from] < fromRegion.getArmies() && usableArmies[from] - 1 < move.getArmies()) //not enough armies on fromRegion at the start of the round?
+								move.setArmies(usableArmies[from] - 1); //move the maximal number.
+							else if(usableArmies[from] >= fromRegion.getArmies() && fromRegion.getArmies() - 1 < move.getArmies()) //not enough armies on fromRegion currently?
 								move.setArmies(fromRegion.getArmies() - 1); //move the maximal number.
 
-							oldFromRegion.setArmies(oldFromRegion.getArmies() - move.getArmies()); //update oldFromRegion so new armies cannot be used yet
+							usableArmies[from] -= move.getArmies(); //update usableArmies so new armies cannot be used yet
 
-							if(toRegion.ownedByPlayer(player.getName())) //transfer
+							if(toRegion.ownedByPlayer(player)) //transfer
 							{
 								if(fromRegion.getArmies() > 1)
 								{
 									fromRegion.setArmies(fromRegion.getArmies() - move.getArmies());
 									toRegion.setArmies(toRegion.getArmies() + move.getArmies());
-									usedRegions.get(fromRegion.getId()).add(toRegion.getId());
+									usedEdges.set(edge);
 								}
 								else
 									move.setIllegalMove(move.getFromRegion().getId() + " transfer " + "only has 1 army");
@@ -404,11 +491,11 @@ public class Processor {
 							{
 								int armiesDestroyed = doAttack(move);
 								if(armiesDestroyed == 0) { //attack was succes
-									oldToRegion.setArmies(1); //region was taken, so cannot be used anymore, even if it's taken back.
+									usableArmies[to] = 1; //region was taken, so cannot be used anymore, even if it's taken back.
 								} else if(armiesDestroyed > 0) { //attack failed
-									oldToRegion.setArmies(oldToRegion.getArmies() - armiesDestroyed); //armies destroyed and replaced cannot be used again this turn
+									usableArmies[to] -= armiesDestroyed; //armies destroyed and replaced cannot be used again this turn
 								}
-								usedRegions.get(fromRegion.getId()).add(toRegion.getId());
+								usedEdges.set(edge);
 							}
 						}
 						else
@@ -421,27 +508,14 @@ public class Processor {
 					move.setIllegalMove(move.getFromRegion().getId() + " attack/transfer " + "was taken this round");
 			}
 
-			visibleRegionsPlayer1Map = map.visibleRegionsForPlayer(player1);
-			visibleRegionsPlayer2Map = map.visibleRegionsForPlayer(player2);
-			
-			fullPlayedGame.add(new MoveResult(move, map.getMapCopy()));
-			if(visibleRegionsPlayer1Map.contains(move.getFromRegion()) || visibleRegionsPlayer1Map.contains(move.getToRegion()) ||
-					visibleRegionsPlayer1OldMap.contains(move.getToRegion()))
+			if(!headless)
 			{
-				player1PlayedGame.add(new MoveResult(move, map.getVisibleMapCopyForPlayer(player1))); //for the game file
-				if(move.getPlayerName().equals(player2.getName()))
-					opponentMovesPlayer1.add(move); //for the opponent_moves output
+				boolean visibleForPlayer1 = map.isVisibleForPlayer(move.getFromRegion(), player1) || map.isVisibleForPlayer(move.getToRegion(), player1) ||
+						toRegionWasVisiblePlayer1;
+				boolean visibleForPlayer2 = map.isVisibleForPlayer(move.getFromRegion(), player2) || map.isVisibleForPlayer(move.getToRegion(), player2) ||
+						toRegionWasVisiblePlayer2;
+				recordMove(move, visibleForPlayer1, visibleForPlayer2);
 			}
-			if(visibleRegionsPlayer2Map.contains(move.getFromRegion()) || visibleRegionsPlayer2Map.contains(move.getToRegion()) ||
-					visibleRegionsPlayer2OldMap.contains(move.getToRegion()))
-			{
-				player2PlayedGame.add(new MoveResult(move, map.getVisibleMapCopyForPlayer(player2))); //for the game file
-				if(move.getPlayerName().equals(player1.getName()))
-					opponentMovesPlayer2.add(move); //for the opponent_moves output
-			}
-			
-			visibleRegionsPlayer1OldMap = visibleRegionsPlayer1Map;
-			visibleRegionsPlayer2OldMap = visibleRegionsPlayer2Map;
 
 			//set some stuff to know what next move to get
 			if(move.getIllegalMove().equals("")) {
@@ -478,25 +552,14 @@ public class Processor {
 			else
 				attackingArmies = fromRegion.getArmies()-1;
 			
-			for(int t=1; t<=attackingArmies; t++) //calculate how much defending armies are destroyed with 100% luck
-			{
-				double rand = Math.random();
-				if(rand < 0.6) //60% chance to destroy one defending army
-					defendersDestroyed++;
-			}
-			for(int t=1; t<=defendingArmies; t++) //calculate how much attacking armies are destroyed with 100% luck
-			{
-				double rand = Math.random();
-				if(rand < 0.7) //70% chance to destroy one attacking army
-					attackersDestroyed++;
-			}
+			//calculate how much armies are destroyed with 100% luck, 60% chance for each attacking army
+			//to destroy one defending army and 70% chance for each defending army to destroy one attacking army
+			defendersDestroyed = Combat.sampleKills(attackingArmies, Combat.ATTACKER_KILL_CHANCE, random);
+			attackersDestroyed = Combat.sampleKills(defendingArmies, Combat.DEFENDER_KILL_CHANCE, random);
 			
 			// apply luck modifier to get actual amount of destroyed armies
-			// straight round method is used (instead of weighted random round)
-			defendersDestroyed = (int) Math.round( ((attackingArmies * 0.6) * (1 - LUCK_MODIFIER)) 
-											+ (defendersDestroyed * LUCK_MODIFIER) );
-			attackersDestroyed = (int) Math.round( ((defendingArmies * 0.7) * (1 - LUCK_MODIFIER)) 
-											+ (attackersDestroyed * LUCK_MODIFIER) );
+			defendersDestroyed = Combat.applyLuck(attackingArmies, Combat.ATTACKER_KILL_CHANCE, defendersDestroyed);
+			attackersDestroyed = Combat.applyLuck(defendingArmies, Combat.DEFENDER_KILL_CHANCE, attackersDestroyed);
 			
 			if(attackersDestroyed >= attackingArmies)
 			{
@@ -510,7 +573,7 @@ public class Processor {
 			if(defendersDestroyed >= defendingArmies) //attack success
 			{
 				fromRegion.setArmies(fromRegion.getArmies() - attackingArmies);
-				toRegion.setPlayerName(move.getPlayerName());
+				toRegion.setOwnerId(fromRegion.getOwnerId()); //the attacker owns fromRegion
 				toRegion.setArmies(attackingArmies - attackersDestroyed);
 				return 0;
 
@@ -534,9 +597,9 @@ public class Processor {
 	 */
 	public Player getWinner()
 	{
-		if(map.ownedRegionsByPlayer(player1).isEmpty())
+		if(map.getNrOfOwnedRegions(player1) == 0)
 			return player2;
-		else if(map.ownedRegionsByPlayer(player2).isEmpty())
+		else if(map.getNrOfOwnedRegions(player2) == 0)
 			return player1;
 		else
 			return null;
@@ -547,15 +610,8 @@ public class Processor {
 	 */
 	public void recalculateStartingArmies()
 	{
-		player1.setArmiesLeft(player1.getArmiesPerTurn());
-		player2.setArmiesLeft(player2.getArmiesPerTurn());
-		
-		for(SuperRegion superRegion : map.getSuperRegions())
-		{
-			Player player = getPlayer(superRegion.ownedByPlayer());
-			if(player != null)
-				player.setArmiesLeft(player.getArmiesLeft() + superRegion.getArmiesReward());
-		}
+		player1.setArmiesLeft(player1.getArmiesPerTurn() + map.getArmiesReward(player1));
+		player2.setArmiesLeft(player2.getArmiesPerTurn() + map.getArmiesReward(player2));
 	}
 	
 	/**
@@ -563,6 +619,7 @@ public class Processor {
 	 */
 	public void sendAllInfo()
 	{
+		checkNotHeadless();
 		sendStartingArmiesInfo(player1);
 		sendStartingArmiesInfo(player2);
 		sendUpdateMapInfo(player1);
@@ -582,18 +639,17 @@ public class Processor {
 	 */
 	private void sendStartingRegionsInfO(Player player, ArrayList<Region> regions, boolean beforeDistribution) 
 	{
-		String startingRegionsString;
+		ProtocolEncoder startingRegionsMessage;
 		if(beforeDistribution)
-			startingRegionsString = "settings starting_regions";
+			startingRegionsMessage = player.startMessage("settings starting_regions");
 		else
-			startingRegionsString = "setup_map opponent_starting_regions";
+			startingRegionsMessage = player.startMessage("setup_map opponent_starting_regions");
 
 		for(Region region : regions) {
-			int id = region.getId();
-			startingRegionsString = startingRegionsString.concat(" " + id);
+			startingRegionsMessage.appendSpaced(region.getId());
 		}
 
-		player.sendInfo(startingRegionsString);
+		player.sendMessage();
 	}
 
 	/**
@@ -603,10 +659,8 @@ public class Processor {
 	 */
 	private void sendStartingRegionPickAmount(Player player, int amount)
 	{
-		String pickAmountString = "settings starting_pick_amount " + amount;
-
-		//System.out.println("sending to " + player.getName() + ": " + pickAmountString);
-		player.sendInfo(pickAmountString);
+		player.startMessage("settings starting_pick_amount").appendSpaced(amount);
+		player.sendMessage();
 	}
 		
 	/**
@@ -615,12 +669,8 @@ public class Processor {
 	 */
 	private void sendStartingArmiesInfo(Player player)
 	{
-		String updateStartingArmiesString = "settings starting_armies";
-		
-		updateStartingArmiesString = updateStartingArmiesString.concat(" " + player.getArmiesLeft());
-		
-		//System.out.println("sending to " + player.getName() + ": " + updateStartingArmiesString);
-		player.sendInfo(updateStartingArmiesString);
+		player.startMessage("settings starting_armies").appendSpaced(player.getArmiesLeft());
+		player.sendMessage();
 	}
 	
 	/**
@@ -629,17 +679,65 @@ public class Processor {
 	 */
 	private void sendUpdateMapInfo(Player player)
 	{
-		LinkedList<Region> visibleRegions = map.visibleRegionsForPlayer(player);
-		String updateMapString = "update_map";
-		for(Region region : visibleRegions)
+		if(player.hasDeltaUpdateMap()) {
+			sendUpdateMapDelta(player);
+			return;
+		}
+		
+		BitSet visibleRegions = map.getVisibleRegionIndices(player);
+		ProtocolEncoder updateMapMessage = player.startMessage("update_map");
+		for(int i = visibleRegions.nextSetBit(0); i >= 0; i = visibleRegions.nextSetBit(i + 1))
 		{
-			int id = region.getId();
-			String playerName = region.getPlayerName();
-			int armies = region.getArmies();
+			updateMapMessage.appendSpaced(map.getTopology().getRegionId(i))
+				.append(' ').append(Owners.getName(map.getOwnerId(i)))
+				.appendSpaced(map.getArmies(i));
+		}
+		player.sendMessage();
+	}
+
+	/**
+	 * Informs the player about the changes in his visible map since the last update_map:
+	 * regions that came into view or changed owner or armies, and regions that went out
+	 * of view as "unknown 0"
+	 * @param player : player to send the info to
+	 */
+	private void sendUpdateMapDelta(Player player)
+	{
+		SentMap sentMap;
+		if(player == player1) {
+			if(sentMapPlayer1 == null)
+				sentMapPlayer1 = new SentMap(map.getNrOfRegions());
+			sentMap = sentMapPlayer1;
+		} else {
+			if(sentMapPlayer2 == null)
+				sentMapPlayer2 = new SentMap(map.getNrOfRegions());
+			sentMap = sentMapPlayer2;
+		}
+		
+		BitSet visibleRegions = map.getVisibleRegionIndices(player);
+		ProtocolEncoder updateMapMessage = player.startMessage("update_map");
+		for(int i = visibleRegions.nextSetBit(0); i >= 0; i = visibleRegions.nextSetBit(i + 1))
+		{
+			int owner = map.getOwnerId(i);
+			int armies = map.getArmies(i);
+			if(sentMap.visible.get(i) && armies == sentMap.armies[i] && owner == sentMap.owners[i])
+				continue;
 			
-			updateMapString = updateMapString.concat(" " + id + " " + playerName + " " + armies);
+			updateMapMessage.appendSpaced(map.getTopology().getRegionId(i))
+				.append(' ').append(Owners.getName(owner))
+				.appendSpaced(armies);
+			sentMap.owners[i] = owner;
+			sentMap.armies[i] = armies;
+		}
+		for(int i = sentMap.visible.nextSetBit(0); i >= 0; i = sentMap.visible.nextSetBit(i + 1))
+		{
+			if(!visibleRegions.get(i))
+				updateMapMessage.appendSpaced(map.getTopology().getRegionId(i)).append(" unknown 0");
 		}
-		player.sendInfo(updateMapString);
+		sentMap.visible.clear();
+		sentMap.visible.or(visibleRegions);
+		
+		player.sendMessage();
 	}
 
 	/**
@@ -648,7 +746,7 @@ public class Processor {
 	 */
 	private void sendOpponentMovesInfo(Player player)
 	{
-		String opponentMovesString = "opponent_moves ";
+		ProtocolEncoder opponentMovesMessage = player.startMessage("opponent_moves");
 		LinkedList<Move> opponentMoves = new LinkedList<Move>();
 
 		if(player == player1)
@@ -660,20 +758,12 @@ public class Processor {
 		{
 			if(move.getIllegalMove().equals(""))
 			{
-				try {
-					PlaceArmiesMove plm = (PlaceArmiesMove) move;
-					opponentMovesString = opponentMovesString.concat(plm.getString() + " ");
-				}
-				catch(Exception e) {
-					AttackTransferMove atm = (AttackTransferMove) move;
-					opponentMovesString = opponentMovesString.concat(atm.getString() + " ");					
-				}
+				opponentMovesMessage.append(' ');
+				move.appendString(opponentMovesMessage);
 			}
 		}
-		
-		opponentMovesString = opponentMovesString.substring(0, opponentMovesString.length()-1);
 
-		player.sendInfo(opponentMovesString);
+		player.sendMessage();
 	}
 	
 	/**
@@ -691,30 +781,56 @@ public class Processor {
 	}
 	
 	/**
-	 * @return : stored game for 'All' view in visualizer
+	 * @param player
+	 * @return : the number of regions given player owns
 	 */
-	public LinkedList<MoveResult> getFullPlayedGame() {
-		return fullPlayedGame;
+	public int getNrOfRegions(Player player) {
+		return map.getNrOfOwnedRegions(player);
 	}
 	
 	/**
-	 * @return : stored game for '1' view in visualizer
+	 * @param player
+	 * @return : the number of armies given player has on the map
 	 */
-	public LinkedList<MoveResult> getPlayer1PlayedGame() {
-		return player1PlayedGame;
+	public int getNrOfArmies(Player player) {
+		return map.getNrOfOwnedArmies(player);
 	}
 	
 	/**
-	 * @return : stored game for '2' view in visualizer
+	 * @return : the map the game is played on
 	 */
-	public LinkedList<MoveResult> getPlayer2PlayedGame() {
-		return player2PlayedGame;
+	public Map getMap() {
+		return map;
 	}
-
+	
+	/**
+	 * @return : stored game, used to build all views in visualizer, null for a fork
+	 */
+	public GameHistory getHistory() {
+		return history;
+	}
+	
 	/**
 	 * @return : current round number
 	 */
 	public int getRoundNr() {
 		return roundNr;
 	}
+
+	/**
+	 * What a bot that gets delta updates has been told about the map, by region index
+	 */
+	private static class SentMap
+	{
+		final BitSet visible;
+		final int[] owners;
+		final int[] armies;
+		
+		SentMap(int nrOfRegions)
+		{
+			visible = new BitSet(nrOfRegions);
+			owners = new int[nrOfRegions];
+			armies = new int[nrOfRegions];
+		}
+	}
 }
@@ -0,0 +1,361 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.theaigames.engine.Engine;
+import com.theaigames.engine.io.ReaderThreads;
+
+/**
+ * Tournament class
+ *
+ * Runs many games inside one JVM on a fixed number of worker threads.
+ * Every game gets its own Engine, Warlight2 and Processor, so games
+ * don't share any state. The games don't print their progress, only
+ * the summary is printed when all games are done.
+ *
+ * The jobs file has one game per line, with tab separated fields:
+ * [map file] [bot1] [bot2] and optionally [game file] and [seed].
+ * Empty lines and lines starting with # are skipped.
+ *
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class Tournament {
+
+	// progress messages of games played at the same time would be mixed up, so they're dropped
+	private static final PrintStream QUIET = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {}
+	});
+	
+	private final List<Job> jobs;
+	private final int nrOfWorkers;
+
+	public Tournament(List<Job> jobs, int nrOfWorkers)
+	{
+		this.jobs = jobs;
+		this.nrOfWorkers = nrOfWorkers;
+	}
+
+	/**
+	 * Plays all jobs and waits until they are finished
+	 * @return : the results, in the same order as the jobs
+	 * @throws InterruptedException
+	 */
+	public List<Result> run() throws InterruptedException
+	{
+		ExecutorService workers = Executors.newFixedThreadPool(this.nrOfWorkers);
+		ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>();
+		ArrayList<Result> results = new ArrayList<Result>();
+
+		try {
+			for(final Job job : this.jobs) {
+				futures.add(workers.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return play(job);
+					}
+				}));
+			}
+
+			for(int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch(ExecutionException e) {
+					results.add(new Result(this.jobs.get(i), 0, null, 0, 0, e.getCause()));
+				}
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+
+		return results;
+	}
+
+	/**
+	 * Plays one game
+	 * @param job : the game to play
+	 * @return : the result of the game
+	 */
+	private static Result play(Job job)
+	{
+		long startTime = System.currentTimeMillis();
+		Engine engine = new Engine();
+		long seed = job.getSeed() != null ? job.getSeed() : GameRandom.newSeed();
+		Warlight2 game = new Warlight2(job.getMapFile(), job.getGameFile(), seed);
+		engine.setLog(QUIET);
+		game.setLog(QUIET);
+
+		try {
+			engine.setLogic(game);
+			engine.addPlayer(job.getBot1());
+			engine.addPlayer(job.getBot2());
+			engine.start();
+
+			Player winner = game.getWinner();
+			return new Result(job, seed, winner != null ? winner.getName() : null, game.getRoundsPlayed(),
+					System.currentTimeMillis() - startTime, null);
+		} catch(Exception e) {
+			return new Result(job, seed, null, 0, System.currentTimeMillis() - startTime, e);
+		} finally {
+			engine.finishPlayers();
+			game.abort(); // closes the game file if the game failed, it's closed already otherwise
+		}
+	}
+
+	/**
+	 * @param results : results of all games
+	 * @return : a summary with the result of every game and the score of every bot
+	 */
+	public static String getSummary(List<Result> results)
+	{
+		StringBuilder out = new StringBuilder();
+		LinkedHashMap<String, int[]> scores = new LinkedHashMap<String, int[]>(); // bot -> wins, losses, draws, errors
+
+		for(int i = 0; i < results.size(); i++)
+		{
+			Result result = results.get(i);
+			Job job = result.getJob();
+			int[] score1 = getScore(scores, job.getBot1());
+			int[] score2 = getScore(scores, job.getBot2());
+
+			out.append("game " + (i + 1) + " " + job.getMapFile() + ": ");
+			if(result.getError() != null) {
+				out.append("error (" + result.getError() + ")");
+				score1[3]++;
+				score2[3]++;
+			} else if(result.getWinner() == null) {
+				out.append("draw");
+				score1[2]++;
+				score2[2]++;
+			} else if(result.getWinner().equals("player1")) {
+				out.append(job.getBot1() + " won");
+				score1[0]++;
+				score2[1]++;
+			} else {
+				out.append(job.getBot2() + " won");
+				score2[0]++;
+				score1[1]++;
+			}
+			out.append(" after " + result.getRounds() + " rounds (" + result.getDuration() + "ms, seed " + result.getSeed() + ")\n");
+		}
+
+		out.append("\n");
+		for(java.util.Map.Entry<String, int[]> entry : scores.entrySet())
+		{
+			int[] score = entry.getValue();
+			out.append(entry.getKey() + ": " + score[0] + " won, " + score[1] + " lost, " + score[2] + " draw");
+			if(score[3] > 0)
+				out.append(", " + score[3] + " error");
+			out.append("\n");
+		}
+
+		return out.toString();
+	}
+
+	private static int[] getScore(LinkedHashMap<String, int[]> scores, String bot)
+	{
+		int[] score = scores.get(bot);
+		if(score == null) {
+			score = new int[4];
+			scores.put(bot, score);
+		}
+		return score;
+	}
+
+	/**
+	 * Reads the jobs file
+	 * @param jobsFile : file with one job per line
+	 * @return : the list of jobs
+	 * @throws IOException
+	 */
+	public static List<Job> readJobs(String jobsFile) throws IOException
+	{
+		ArrayList<Job> jobs = new ArrayList<Job>();
+		BufferedReader reader = new BufferedReader(new FileReader(jobsFile));
+
+		try {
+			String line;
+			int lineNr = 0;
+			while((line = reader.readLine()) != null) {
+				lineNr++;
+				if(line.trim().isEmpty() || line.startsWith("#"))
+					continue;
+
+				String[] fields = line.split("\t");
+				if(fields.length < 3) {
+					System.err.println("Skipping job on line " + lineNr + ": expected [map file] [bot1] [bot2] separated by tabs");
+					continue;
+				}
+				String gameFile = fields.length > 3 && !fields[3].isEmpty() ? fields[3] : null;
+				Long seed = null;
+				if(fields.length > 4 && !fields[4].isEmpty()) {
+					try {
+						seed = Long.parseLong(fields[4]);
+					} catch(NumberFormatException e) {
+						System.err.println("Skipping job on line " + lineNr + ": seed is not a number");
+						continue;
+					}
+				}
+				jobs.add(new Job(fields[0], fields[1], fields[2], gameFile, seed));
+			}
+		} finally {
+			reader.close();
+		}
+
+		return jobs;
+	}
+
+	/**
+	 * main
+	 * @param args : the jobs file should be given, optionally followed by the number of games played at the same time
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception
+	{
+		String jobsFile = args[0];
+		int nrOfWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		ReaderThreads.configure(); // fails on a wrong engine.readerThreads before any game starts
+
+		Tournament tournament = new Tournament(readJobs(jobsFile), nrOfWorkers);
+		List<Result> results = tournament.run();
+
+		System.out.println(getSummary(results));
+
+		System.exit(0);
+	}
+
+	/**
+	 * A game to be played
+	 */
+	public static class Job
+	{
+		private final String mapFile;
+		private final String bot1, bot2;
+		private final String gameFile;
+		private final Long seed;
+
+		/**
+		 * @param mapFile : file that contains the map
+		 * @param bot1 : command that starts bot1
+		 * @param bot2 : command that starts bot2
+		 * @param gameFile : file the played game is written to, null to not write the game
+		 * @param seed : seed of the game, null for a new random seed
+		 */
+		public Job(String mapFile, String bot1, String bot2, String gameFile, Long seed)
+		{
+			this.mapFile = mapFile;
+			this.bot1 = bot1;
+			this.bot2 = bot2;
+			this.gameFile = gameFile;
+			this.seed = seed;
+		}
+
+		public String getMapFile() {
+			return mapFile;
+		}
+
+		public String getBot1() {
+			return bot1;
+		}
+
+		public String getBot2() {
+			return bot2;
+		}
+
+		public String getGameFile() {
+			return gameFile;
+		}
+
+		public Long getSeed() {
+			return seed;
+		}
+	}
+
+	/**
+	 * The outcome of a played game
+	 */
+	public static class Result
+	{
+		private final Job job;
+		private final long seed;
+		private final String winner;
+		private final int rounds;
+		private final long duration;
+		private final Throwable error;
+
+		/**
+		 * @param job : the game that was played
+		 * @param seed : seed the game was played with
+		 * @param winner : name of the winning player, null for a draw
+		 * @param rounds : amount of rounds played
+		 * @param duration : time the game took in ms
+		 * @param error : what went wrong, null if the game was finished normally
+		 */
+		public Result(Job job, long seed, String winner, int rounds, long duration, Throwable error)
+		{
+			this.job = job;
+			this.seed = seed;
+			this.winner = winner;
+			this.rounds = rounds;
+			this.duration = duration;
+			this.error = error;
+		}
+
+		public Job getJob() {
+			return job;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public String getWinner() {
+			return winner;
+		}
+
+		public int getRounds() {
+			return rounds;
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+	}
+}
@@ -19,8 +19,6 @@ package com.theaigames.game.warlight2;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Scanner;
 
 import java.lang.Thread;
 import java.util.zip.*;
@@ -29,11 +27,9 @@ import java.net.URL;
 
 import com.theaigames.engine.Engine;
 import com.theaigames.engine.Logic;
-import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.BotPlayer;
+import com.theaigames.engine.io.ReaderThreads;
 
-import com.theaigames.game.warlight2.move.AttackTransferMove;
-import com.theaigames.game.warlight2.move.MoveResult;
-import com.theaigames.game.warlight2.move.PlaceArmiesMove;
 import com.theaigames.game.warlight2.map.Map;
 
 /**
@@ -48,10 +44,14 @@ public class Warlight2 implements Logic
 {
 	private String playerName1, playerName2;
 	private final String mapFile;
+	private final String outputFile;
+	private final long seed;
 
 	private Processor processor;
+	private GameFileWriter gameFileWriter;
 	private Player player1, player2;
 	private int maxRounds;
+	private PrintStream log; // progress of the game, System.out by default
 
 	private String secretKey, accessKey;
 	
@@ -59,12 +59,46 @@ public class Warlight2 implements Logic
 	private final long TIMEBANK_MAX = 10000l;
 	private final long TIME_PER_MOVE = 500l;
 	private final int SIZE_WASTELANDS = 6; // size of wastelands, <= 0 for no wastelands
+	
+	// system property with the names of the players whose bots get only the changes in update_map
+	public static final String DELTA_UPDATE_MAP_PROPERTY = "warlight2.deltaUpdateMap";
 
 	public Warlight2(String mapFile)
+	{
+		this(mapFile, null);
+	}
+	
+	/**
+	 * @param mapFile : file that contains the map
+	 * @param outputFile : file the played game is written to, null to not write the game
+	 */
+	public Warlight2(String mapFile, String outputFile)
+	{
+		this(mapFile, outputFile, GameRandom.newSeed());
+	}
+	
+	/**
+	 * @param mapFile : file that contains the map
+	 * @param outputFile : file the played game is written to, null to not write the game
+	 * @param seed : seed for all randomness in the game, playing it again with the same
+	 * seed and the same bot moves gives the same game
+	 */
+	public Warlight2(String mapFile, String outputFile, long seed)
 	{
 		this.mapFile = mapFile;
+		this.outputFile = outputFile;
+		this.seed = seed;
 		this.playerName1 = "player1";
 		this.playerName2 = "player2";
+		this.log = System.out;
+	}
+	
+	/**
+	 * @param log : where the progress of the game is printed, System.out by default
+	 */
+	public void setLog(PrintStream log)
+	{
+		this.log = log;
 	}
 	
 	
@@ -73,11 +107,13 @@ public class Warlight2 implements Logic
 	 * @param players : list of bots that have already been initialized
 	 */
 	@Override
-    public void setupGame(ArrayList<IOPlayer> players) throws IncorrectPlayerCountException, IOException {
+    public void setupGame(ArrayList<BotPlayer> players) throws IncorrectPlayerCountException, IOException {
 		
-		Map initMap, map;
+		Map map;
 		
-		System.out.println("setting up game");
+		this.log.println("setting up game");
+		this.log.println("seed: " + this.seed);
+		GameRandom random = new GameRandom(this.seed);
 		
         // Determine array size is two players
         if (players.size() != 2) {
@@ -87,14 +123,22 @@ public class Warlight2 implements Logic
         this.player1 = new Player(playerName1, players.get(0), STARTING_ARMIES, TIMEBANK_MAX, TIME_PER_MOVE);
         this.player2 = new Player(playerName2, players.get(1), STARTING_ARMIES, TIMEBANK_MAX, TIME_PER_MOVE);
         
-        // get map string from database and setup the map
-  		initMap = MapCreator.createMap(getMapString());
-  		map = MapCreator.setupMap(initMap, SIZE_WASTELANDS);
+        for(String playerName : System.getProperty(DELTA_UPDATE_MAP_PROPERTY, "").split(",")) {
+        	if(playerName.trim().equals(playerName1))
+        		this.player1.setDeltaUpdateMap(true);
+        	else if(playerName.trim().equals(playerName2))
+        		this.player2.setDeltaUpdateMap(true);
+        }
+        
+        // get the map's topology, only parsed if no other game has used the map file recently, and setup the map
+  		map = MapCreator.setupMap(new Map(MapCreator.getTopology(this.mapFile)), SIZE_WASTELANDS, random.split());
   		this.maxRounds = MapCreator.determineMaxRounds(map);
   		
   		// start the processor
-  		System.out.println("Starting game...");
-  		this.processor = new Processor(map, player1, player2);
+  		this.log.println("Starting game...");
+  		this.processor = new Processor(map, player1, player2, random.split());
+  		if(this.outputFile != null)
+  			this.gameFileWriter = new GameFileWriter(this.outputFile, this.processor.getHistory(), player1, player2);
 	
   		sendSettings(player1);
   		sendSettings(player2);
@@ -107,6 +151,7 @@ public class Warlight2 implements Logic
   		this.processor.distributeStartingRegions(); //decide the player's starting regions
 		this.processor.recalculateStartingArmies(); //calculate how much armies the players get at the start of the round (depending on owned SuperRegions)
 		this.processor.sendAllInfo();
+		writeHistory();
     }
 	
 	
@@ -121,6 +166,23 @@ public class Warlight2 implements Logic
 		player2.getBot().addToDump(String.format("Round %d\n", roundNumber));
 		
 		this.processor.playRound(roundNumber);
+		writeHistory();
+	}
+	
+	/**
+	 * Writes the part of the game that has been played since the last call to the
+	 * game file, after that it's removed from memory
+	 */
+	private void writeHistory()
+	{
+		if(this.gameFileWriter != null) {
+			try {
+				this.gameFileWriter.write(this.processor.getHistory());
+			} catch(IOException e) {
+				System.err.println("Writing game file failed: " + e);
+			}
+		}
+		this.processor.getHistory().clear();
 	}
 	
 	
@@ -150,32 +212,13 @@ public class Warlight2 implements Logic
 			player.sendInfo("settings opponent_bot " + player2.getName());
 		else
 			player.sendInfo("settings opponent_bot " + player1.getName());
+		
+		if (player.hasDeltaUpdateMap())
+			player.sendInfo("settings update_map_mode delta");
 	}
 	
 	/**
-	 * Reads the string from the map file
-	 * @return : string representation of the map
-	 * @throws IOException
-	 */
-	private String getMapString() throws IOException 
-	{
-		File file = new File(this.mapFile);
-	    StringBuilder fileContents = new StringBuilder((int) file.length());
-	    Scanner scanner = new Scanner(file);
-	    String lineSeparator = System.getProperty("line.separator");
-
-	    try {
-	        while(scanner.hasNextLine()) {        
-	            fileContents.append(scanner.nextLine() + lineSeparator);
-	        }
-	        return fileContents.toString();
-	    } finally {
-	        scanner.close();
-	    }
-	}
-	
-	/**
-	 * close the bot processes, save, exit program
+	 * close the bot processes and save
 	 */
 	@Override
 	public void finish() throws Exception
@@ -191,65 +234,49 @@ public class Warlight2 implements Logic
 			e.printStackTrace();
 		}
 		
-		System.out.println("Done.");
-		
-        System.exit(0);
+		this.log.println("Done.");
 	}
-
+	
+	/**
+	 * @return : the winner of the game, null if nobody won (yet)
+	 */
+	public Player getWinner()
+	{
+		return this.processor.getWinner();
+	}
+	
+	/**
+	 * @return : the seed of this game
+	 */
+	public long getSeed()
+	{
+		return this.seed;
+	}
+	
 	/**
-	 * Turns the game that is stored in the processor to a nice string for the visualization
-	 * @param winner : winner
-	 * @param gameView : type of view
-	 * @return : string that the visualizer can read
+	 * @return : the amount of rounds that have been played
 	 */
-	private String getPlayedGame(Player winner, String gameView)
+	public int getRoundsPlayed()
 	{
-		StringBuilder out = new StringBuilder();		
+		return this.processor.getRoundNr() - 1;
+	}
 
-		LinkedList<MoveResult> playedGame;
-		if(gameView.equals("player1"))
-			playedGame = this.processor.getPlayer1PlayedGame();
-		else if(gameView.equals("player2"))
-			playedGame = this.processor.getPlayer2PlayedGame();
-		else
-			playedGame = this.processor.getFullPlayedGame();
-			
-		playedGame.removeLast();
-		int roundNr = 0;
-		for(MoveResult moveResult : playedGame)
-		{
-			if(moveResult != null)
-			{
-				if(moveResult.getMove() != null)
-				{
-					try {
-						PlaceArmiesMove plm = (PlaceArmiesMove) moveResult.getMove();
-						out.append(plm.getString() + "\n");
-					}
-					catch(Exception e) {
-						AttackTransferMove atm = (AttackTransferMove) moveResult.getMove();
-						out.append(atm.getString() + "\n");
-					}
-					
-				}
-				out.append("map " + moveResult.getMap().getMapString() + "\n");
-			}
-			else
-			{
-				out.append("round " + roundNr + "\n");
-				roundNr++;
+	/**
+	 * Closes the game file of a game that didn't end with finish(), for instance because
+	 * a bot or the engine failed. What has been written so far is kept. Does nothing if
+	 * there is no game file or it has been closed already.
+	 */
+	public void abort()
+	{
+		if(this.gameFileWriter != null) {
+			try {
+				this.gameFileWriter.close();
+			} catch(IOException e) {
+				System.err.println("Closing game file failed: " + e);
 			}
 		}
-		
-		if(winner != null)
-			out.append(winner.getName() + " won\n");
-		else
-			out.append("Nobody won\n");
-
-		return out.toString();
 	}
-
-
+	
 	/**
 	 * Does everything that is needed to store the output of a game
 	 */
@@ -259,18 +286,26 @@ public class Warlight2 implements Logic
 		int score = this.processor.getRoundNr() - 1;
 		
 		if(winner != null) {
-			System.out.println("winner: " + winner.getName());
+			this.log.println("winner: " + winner.getName());
 		} else {
-			System.out.println("winner: draw");
+			this.log.println("winner: draw");
 		}
 		
-		System.out.println("Saving the game...");
+		this.log.println("Saving the game...");
+		if(this.gameFileWriter != null) {
+			try {
+				this.gameFileWriter.finish(winner);
+			} catch(IOException e) {
+				System.err.println("Writing game file failed: " + e);
+			}
+		}
 		// do stuff here if you want to save results
 	}
 	
 	/**
 	 * main
 	 * @param args : the map file should be given, along with the commands that start the bot processes
+	 * and optionally the file to write the played game to (empty for none) and the seed of the game
 	 * @throws Exception
 	 */
 	public static void main(String args[]) throws Exception
@@ -278,17 +313,26 @@ public class Warlight2 implements Logic
 		String mapFile = args[0];
 		String bot1Cmd = args[1];
 		String bot2Cmd = args[2];
+		String outputFile = args.length > 3 && !args[3].isEmpty() ? args[3] : null;
+
+		// Fail on a wrong engine.readerThreads before starting anything
+		ReaderThreads.configure();
 
 		// Construct engine
         Engine engine = new Engine();
         
         // Set logic
-        engine.setLogic(new Warlight2(mapFile));
+        if(args.length > 4)
+        	engine.setLogic(new Warlight2(mapFile, outputFile, Long.parseLong(args[4])));
+        else
+        	engine.setLogic(new Warlight2(mapFile, outputFile));
 		
         // Add players
         engine.addPlayer(bot1Cmd);
         engine.addPlayer(bot2Cmd);
 		
         engine.start();
+        
+        System.exit(0);
 	}
 }
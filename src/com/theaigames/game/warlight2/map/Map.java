@@ -17,100 +17,174 @@
 
 package com.theaigames.game.warlight2.map;
 
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
+import java.util.List;
 
 import com.theaigames.game.warlight2.Player;
 
 /**
  * Map class
  * 
+ * Regions and SuperRegions are stored in dense arrays, in the order of their index
+ * in the MapTopology. The topology is shared with every other Map on the same map
+ * file, a Map only holds the owner and armies of each region. Those are kept in two
+ * int arrays by region index, owners as the ids given by Owners. The Region and
+ * SuperRegion objects are only created when they're asked for, so copying a Map
+ * is mostly copying its arrays.
+ * 
+ * Fog of war is kept per owner as a BitSet of visible region indices. For every region
+ * we count how many of its owner's regions are in its neighborhood, so a change of
+ * ownership only has to update the neighborhood of the region that changed hands.
+ * 
+ * For every owner we also count its regions, its armies and how many regions of
+ * each SuperRegion it owns, so those totals, who owns a SuperRegion and the bonus
+ * armies of a player are known without looking at the regions.
+ * 
  * @author Jim van Eeden <jim@starapple.nl>
  */
 
 public class Map {
 	
-	public LinkedList<Region> regions;
-	public LinkedList<SuperRegion> superRegions;
+	private final MapTopology topology;
+	private final Region[] regions;
+	private final SuperRegion[] superRegions;
+	private final int nrOfRegions;
+	private final int nrOfSuperRegions;
+	private final int[] owners; //region index -> owner id
+	private final int[] armies; //region index -> armies
 	
-	public Map()
-	{
-		this.regions = new LinkedList<Region>();
-		this.superRegions = new LinkedList<SuperRegion>();
-	}
+	private BitSet changedRegions; //indices of regions whose owner or armies changed since the last clearChangedRegions()
+	
+	private OwnerVisibility[] visibilities; //owner id -> visibility, null for owners that don't appear on the map, null if not computed yet
+	
+	private OwnerRegions[] ownerRegions; //owner id -> owned regions, null for owners that don't appear on the map
+	private final int[] superRegionOwners; //superRegion index -> id of the owner of all its regions, -1 if none
+	
+	private final List<Region> regionList = new AbstractList<Region>() {
+		@Override
+		public Region get(int index) {
+			if(index < 0 || index >= nrOfRegions)
+				throw new IndexOutOfBoundsException("Region index " + index);
+			return getRegionByIndex(index);
+		}
+		
+		@Override
+		public int size() {
+			return nrOfRegions;
+		}
+	};
+	
+	private final List<SuperRegion> superRegionList = new AbstractList<SuperRegion>() {
+		@Override
+		public SuperRegion get(int index) {
+			if(index < 0 || index >= nrOfSuperRegions)
+				throw new IndexOutOfBoundsException("SuperRegion index " + index);
+			return getSuperRegionByIndex(index);
+		}
+		
+		@Override
+		public int size() {
+			return nrOfSuperRegions;
+		}
+	};
 	
-	public Map(LinkedList<Region> regions, LinkedList<SuperRegion> superRegions)
-	{
-		this.regions = regions;
-		this.superRegions = superRegions;
-	}
-
 	/**
-	 * add a Region to the map
-	 * @param region : Region to be added
+	 * Creates a map on given topology, every region is unknown with 0 armies
+	 * @param topology : the regions and superRegions of the map and how they're connected
 	 */
-	public void add(Region region)
+	public Map(MapTopology topology)
 	{
-		for(Region r : regions)
-			if(r.getId() == region.getId())
+		this.topology = topology;
+		this.nrOfRegions = topology.getNrOfRegions();
+		this.nrOfSuperRegions = topology.getNrOfSuperRegions();
+		this.regions = new Region[nrOfRegions];
+		this.superRegions = new SuperRegion[nrOfSuperRegions];
+		this.owners = new int[nrOfRegions]; //all unknown
+		this.armies = new int[nrOfRegions];
+		this.changedRegions = new BitSet(nrOfRegions);
+		this.ownerRegions = new OwnerRegions[0];
+		this.superRegionOwners = new int[nrOfSuperRegions];
+		Arrays.fill(superRegionOwners, -1);
+		
+		OwnerRegions unknownRegions = getOwnerRegions(Owners.UNKNOWN); //all regions start unknown with no armies
+		unknownRegions.nrOfRegions = nrOfRegions;
+		for(int i = 0; i < nrOfSuperRegions; i++)
+		{
+			int size = topology.getSubRegions(i).length;
+			unknownRegions.superRegionCounts[i] = size;
+			if(size > 0)
 			{
-				System.err.println("Region cannot be added: id already exists.");
-				return;
+				superRegionOwners[i] = Owners.UNKNOWN;
+				unknownRegions.armiesReward += topology.getArmiesReward(i);
 			}
-		regions.add(region);
+		}
 	}
 	
 	/**
-	 * add a SuperRegion to the map
-	 * @param superRegion : SuperRegion to be added
+	 * Creates a copy of given map, only its arrays are copied
+	 * @param map : the map to copy
 	 */
-	public void add(SuperRegion superRegion)
+	private Map(Map map)
 	{
-		for(SuperRegion s : superRegions)
-			if(s.getId() == superRegion.getId())
-			{
-				System.err.println("SuperRegion cannot be added: id already exists.");
-				return;
-			}
-		superRegions.add(superRegion);
+		this.topology = map.topology;
+		this.nrOfRegions = map.nrOfRegions;
+		this.nrOfSuperRegions = map.nrOfSuperRegions;
+		this.regions = new Region[nrOfRegions];
+		this.superRegions = new SuperRegion[nrOfSuperRegions];
+		this.owners = map.owners.clone();
+		this.armies = map.armies.clone();
+		this.changedRegions = new BitSet(nrOfRegions);
+		this.ownerRegions = new OwnerRegions[map.ownerRegions.length];
+		for(int i = 0; i < ownerRegions.length; i++)
+			if(map.ownerRegions[i] != null)
+				ownerRegions[i] = new OwnerRegions(map.ownerRegions[i]);
+		this.superRegionOwners = map.superRegionOwners.clone();
 	}
 	
 	/**
-	 * @return : a new Map object exactly the same as this one
+	 * @return : a new Map object exactly the same as this one, sharing its topology.
+	 * No region is marked as changed in the copy.
 	 */
 	public Map getMapCopy() {
-		Map newMap = new Map();
-		for(SuperRegion sr : superRegions) //copy superRegions
-		{
-			SuperRegion newSuperRegion = new SuperRegion(sr.getId(), sr.getArmiesReward());
-			newMap.add(newSuperRegion);
-		}
-		for(Region r : regions) //copy regions
-		{
-			Region newRegion = new Region(r.getId(), newMap.getSuperRegion(r.getSuperRegion().getId()), r.getPlayerName(), r.getArmies());
-			newMap.add(newRegion);
-		}
-		for(Region r : regions) //add neighbors to copied regions
-		{
-			Region newRegion = newMap.getRegion(r.getId());
-			for(Region neighbor : r.getNeighbors())
-				newRegion.addNeighbor(newMap.getRegion(neighbor.getId()));
-		}
-		return newMap;
+		return new Map(this);
+	}
+	
+	/**
+	 * @return : the regions and superRegions of this map and how they're connected
+	 */
+	public MapTopology getTopology() {
+		return topology;
 	}
 	
 	/**
-	 * @return : the list of all Regions in this map
+	 * @return : the list of all Regions in this map, ordered by index
 	 */
-	public LinkedList<Region> getRegions() {
-		return regions;
+	public List<Region> getRegions() {
+		return regionList;
 	}
 	
 	/**
-	 * @return : the list of all SuperRegions in this map
+	 * @return : the list of all SuperRegions in this map, ordered by index
 	 */
-	public LinkedList<SuperRegion> getSuperRegions() {
-		return superRegions;
+	public List<SuperRegion> getSuperRegions() {
+		return superRegionList;
+	}
+	
+	/**
+	 * @return : the amount of Regions in this map
+	 */
+	public int getNrOfRegions() {
+		return nrOfRegions;
+	}
+	
+	/**
+	 * @return : the amount of SuperRegions in this map
+	 */
+	public int getNrOfSuperRegions() {
+		return nrOfSuperRegions;
 	}
 	
 	/**
@@ -119,9 +193,9 @@ public class Map {
 	 */
 	public Region getRegion(int id)
 	{
-		for(Region region : regions)
-			if(region.getId() == id)
-				return region;
+		int index = topology.getRegionIndex(id);
+		if(index != -1)
+			return getRegionByIndex(index);
 		System.err.println("Could not find region with id " + id);
 		return null;
 	}
@@ -132,21 +206,241 @@ public class Map {
 	 */
 	public SuperRegion getSuperRegion(int id)
 	{
-		for(SuperRegion superRegion : superRegions)
-			if(superRegion.getId() == id)
-				return superRegion;
+		int index = topology.getSuperRegionIndex(id);
+		if(index != -1)
+			return getSuperRegionByIndex(index);
 		System.err.println("Could not find superRegion with id " + id);
 		return null;
 	}
 	
+	/**
+	 * @param index : a Region index, between 0 and getNrOfRegions()
+	 * @return : the Region at given index
+	 */
+	public Region getRegionByIndex(int index) {
+		Region region = regions[index];
+		if(region == null)
+			region = regions[index] = new Region(this, index, getSuperRegionByIndex(topology.getSuperRegionIndexOfRegion(index)));
+		return region;
+	}
+	
+	/**
+	 * @param index : a SuperRegion index, between 0 and getNrOfSuperRegions()
+	 * @return : the SuperRegion at given index
+	 */
+	public SuperRegion getSuperRegionByIndex(int index) {
+		SuperRegion superRegion = superRegions[index];
+		if(superRegion == null)
+			superRegion = superRegions[index] = new SuperRegion(this, index);
+		return superRegion;
+	}
 
 	/**
-	 * Sors all the regions and superRegions in this map by id
+	 * @param index : a Region index
+	 * @return : the id of the owner of the Region, see Owners
+	 */
+	public int getOwnerId(int index) {
+		return owners[index];
+	}
+	
+	/**
+	 * @param index : a Region index
+	 * @return : the number of armies on the Region
+	 */
+	public int getArmies(int index) {
+		return armies[index];
+	}
+	
+	/**
+	 * Sets the owner of a region and marks it as changed if that's a different owner
+	 * @param index : a Region index
+	 * @param ownerId : id of the new owner, see Owners
+	 */
+	public void setOwnerId(int index, int ownerId)
+	{
+		int oldOwnerId = owners[index];
+		if(ownerId == oldOwnerId)
+			return;
+		owners[index] = ownerId;
+		changedRegions.set(index);
+		ownerChanged(index, oldOwnerId, ownerId);
+	}
+	
+	/**
+	 * Sets the armies on a region and marks it as changed if that's a different number
+	 * @param index : a Region index
+	 * @param armies : the new number of armies
 	 */
-	public void sort() 
+	public void setArmies(int index, int armies)
 	{
-		Collections.sort(this.regions);
-		Collections.sort(this.superRegions);
+		int difference = armies - this.armies[index];
+		if(difference == 0)
+			return;
+		this.armies[index] = armies;
+		changedRegions.set(index);
+		getOwnerRegions(owners[index]).nrOfArmies += difference;
+	}
+	
+	/**
+	 * @return : the indices of all regions whose owner or armies changed since the
+	 * last time clearChangedRegions() was called, must not be modified
+	 */
+	public BitSet getChangedRegionIndices() {
+		return changedRegions;
+	}
+	
+	/**
+	 * Forgets which regions have changed
+	 */
+	public void clearChangedRegions() {
+		changedRegions.clear();
+	}
+	
+	/**
+	 * Updates the owned regions and armies, the owned SuperRegions and the visibility of both
+	 * owners when a region changes hands, only the SuperRegion and neighborhood of the region
+	 * have to be updated
+	 * @param regionIndex : index of the region that changed owner
+	 * @param oldOwner : id of the previous owner
+	 * @param newOwner : id of the new owner
+	 */
+	private void ownerChanged(int regionIndex, int oldOwner, int newOwner)
+	{
+		int superRegionIndex = topology.getSuperRegionIndexOfRegion(regionIndex);
+		int superRegionSize = topology.getSubRegions(superRegionIndex).length;
+		int armiesReward = topology.getArmiesReward(superRegionIndex);
+		OwnerRegions oldRegions = getOwnerRegions(oldOwner);
+		OwnerRegions newRegions = getOwnerRegions(newOwner);
+		
+		oldRegions.nrOfRegions--;
+		oldRegions.nrOfArmies -= armies[regionIndex];
+		newRegions.nrOfRegions++;
+		newRegions.nrOfArmies += armies[regionIndex];
+		if(oldRegions.superRegionCounts[superRegionIndex]-- == superRegionSize)
+		{
+			oldRegions.armiesReward -= armiesReward;
+			superRegionOwners[superRegionIndex] = -1;
+		}
+		if(++newRegions.superRegionCounts[superRegionIndex] == superRegionSize)
+		{
+			newRegions.armiesReward += armiesReward;
+			superRegionOwners[superRegionIndex] = newOwner;
+		}
+		
+		if(visibilities == null) //visibility is not computed yet
+			return;
+		
+		OwnerVisibility oldVisibility = getOwnerVisibility(oldOwner);
+		OwnerVisibility newVisibility = getOwnerVisibility(newOwner);
+		
+		oldVisibility.remove(regionIndex);
+		newVisibility.add(regionIndex);
+		for(int edge = topology.getFirstEdge(regionIndex); edge < topology.getFirstEdge(regionIndex + 1); edge++)
+		{
+			int index = topology.getNeighbor(edge);
+			if(index != regionIndex)
+			{
+				oldVisibility.remove(index);
+				newVisibility.add(index);
+			}
+		}
+	}
+	
+	/**
+	 * Computes the visibility of each owner from scratch
+	 */
+	private void computeVisibility()
+	{
+		visibilities = new OwnerVisibility[ownerRegions.length];
+		for(int i = 0; i < nrOfRegions; i++)
+		{
+			OwnerVisibility visibility = getOwnerVisibility(owners[i]);
+			visibility.add(i);
+			for(int edge = topology.getFirstEdge(i); edge < topology.getFirstEdge(i + 1); edge++)
+				if(topology.getNeighbor(edge) != i)
+					visibility.add(topology.getNeighbor(edge));
+		}
+	}
+	
+	/**
+	 * @param owner : id of an owner
+	 * @return : the owned regions of given owner, created if it isn't tracked yet
+	 */
+	private OwnerRegions getOwnerRegions(int owner)
+	{
+		if(owner >= ownerRegions.length)
+			ownerRegions = Arrays.copyOf(ownerRegions, owner + 1);
+		if(ownerRegions[owner] == null)
+			ownerRegions[owner] = new OwnerRegions(nrOfSuperRegions);
+		return ownerRegions[owner];
+	}
+	
+	/**
+	 * @param superRegion : a SuperRegion of this map
+	 * @return : name of the owner of all regions of given SuperRegion, null if there is none
+	 */
+	String getSuperRegionOwner(SuperRegion superRegion) {
+		int owner = superRegionOwners[superRegion.getIndex()];
+		return owner != -1 ? Owners.getName(owner) : null;
+	}
+	
+	/**
+	 * @param player
+	 * @return : the number of regions given player owns
+	 */
+	public int getNrOfOwnedRegions(Player player) {
+		return getOwnerRegions(player.getOwnerId()).nrOfRegions;
+	}
+	
+	/**
+	 * @param player
+	 * @return : the number of armies on all regions given player owns
+	 */
+	public int getNrOfOwnedArmies(Player player) {
+		return getOwnerRegions(player.getOwnerId()).nrOfArmies;
+	}
+	
+	/**
+	 * @param player
+	 * @return : the sum of the armies rewards of all SuperRegions that given player fully owns
+	 */
+	public int getArmiesReward(Player player) {
+		return getOwnerRegions(player.getOwnerId()).armiesReward;
+	}
+	
+	/**
+	 * @param owner : id of an owner
+	 * @return : the visibility of given owner, created if it isn't tracked yet
+	 */
+	private OwnerVisibility getOwnerVisibility(int owner)
+	{
+		if(owner >= visibilities.length)
+			visibilities = Arrays.copyOf(visibilities, owner + 1);
+		if(visibilities[owner] == null)
+			visibilities[owner] = new OwnerVisibility(nrOfRegions);
+		return visibilities[owner];
+	}
+	
+	/**
+	 * @param player
+	 * @return : the indices of all regions visible for given player, must not be modified
+	 */
+	public BitSet getVisibleRegionIndices(Player player)
+	{
+		if(visibilities == null)
+			computeVisibility();
+		return getOwnerVisibility(player.getOwnerId()).visible;
+	}
+	
+	/**
+	 * Needed because fog of war
+	 * @param region
+	 * @param player
+	 * @return : true if given region is visible for given player
+	 */
+	public boolean isVisibleForPlayer(Region region, Player player)
+	{
+		return getVisibleRegionIndices(player).get(region.getIndex());
 	}
 	
 	/**
@@ -154,12 +448,26 @@ public class Map {
 	 */
 	public String getMapString()
 	{
-		String mapString = "";
-		for(Region region : regions)
+		StringBuilder mapString = new StringBuilder();
+		appendMapString(mapString, null);
+		return mapString.toString();
+	}
+	
+	/**
+	 * Appends the string representation of this map to given builder
+	 * @param mapString : builder to append to
+	 * @param player : only the regions visible for this player are shown, null to show all regions
+	 */
+	public void appendMapString(StringBuilder mapString, Player player)
+	{
+		BitSet visible = player != null ? getVisibleRegionIndices(player) : null;
+		for(int i = 0; i < nrOfRegions; i++)
 		{
-			mapString = mapString.concat(region.getId() + ";" + region.getPlayerName() + ";" + region.getArmies() + " ");
+			if(visible == null || visible.get(i))
+				mapString.append(topology.getRegionId(i)).append(';').append(Owners.getName(owners[i])).append(';').append(armies[i]).append(' ');
+			else
+				mapString.append(topology.getRegionId(i)).append(";unknown;0 ");
 		}
-		return mapString;
 	}
 	
 	/**
@@ -169,10 +477,13 @@ public class Map {
 	public LinkedList<Region> ownedRegionsByPlayer(Player player)
 	{
 		LinkedList<Region> ownedRegions = new LinkedList<Region>();
+		if(getNrOfOwnedRegions(player) == 0)
+			return ownedRegions;
 		
-		for(Region region : this.getRegions())
-			if(region.getPlayerName().equals(player.getName()))
-				ownedRegions.add(region);
+		int owner = player.getOwnerId();
+		for(int i = 0; i < nrOfRegions; i++)
+			if(owners[i] == owner)
+				ownedRegions.add(getRegionByIndex(i));
 
 		return ownedRegions;
 	}
@@ -180,41 +491,105 @@ public class Map {
 	/**
 	 * Needed because fog of war
 	 * @param player
-	 * @return : a list of all visible regions for given player
+	 * @return : a list of all visible regions for given player, ordered by index
 	 */
 	public LinkedList<Region> visibleRegionsForPlayer(Player player)
 	{
 		LinkedList<Region> visibleRegions = new LinkedList<Region>();
-		LinkedList<Region> ownedRegions = ownedRegionsByPlayer(player);
-		
-		visibleRegions.addAll(ownedRegions);
+		BitSet visible = getVisibleRegionIndices(player);
 		
-		for(Region region : ownedRegions)	
-			for(Region neighbor : region.getNeighbors())
-				if(!visibleRegions.contains(neighbor))
-					visibleRegions.add(neighbor);
+		for(int i = visible.nextSetBit(0); i >= 0; i = visible.nextSetBit(i + 1))
+			visibleRegions.add(getRegionByIndex(i));
 
 		return visibleRegions;
 	}
 	
+	/**
+	 * @param player
+	 * @return : a string representation of this map as seen by given player
+	 */
+	public String getVisibleMapString(Player player)
+	{
+		StringBuilder mapString = new StringBuilder();
+		appendMapString(mapString, player);
+		return mapString.toString();
+	}
+	
 	/**
 	 * @param player
 	 * @return : a copy of the visible map for given player
 	 */
 	public Map getVisibleMapCopyForPlayer(Player player) {
 		Map visibleMap = getMapCopy();
-		LinkedList<Region> visibleRegions = visibleRegionsForPlayer(player);
+		BitSet visible = getVisibleRegionIndices(player);
 		
-		for(Region region : regions)
+		for(int i = visible.nextClearBit(0); i < nrOfRegions; i = visible.nextClearBit(i + 1))
 		{
-			if(!visibleRegions.contains(region)){
-				Region unknownRegion = visibleMap.getRegion(region.getId());
-				unknownRegion.setPlayerName("unknown");
-				unknownRegion.setArmies(0);
-			}
+			visibleMap.setOwnerId(i, Owners.UNKNOWN);
+			visibleMap.setArmies(i, 0);
 		}
 		
 		return visibleMap;		
 	}
 	
+	/**
+	 * Visibility of one owner: which regions it can see and, for each region,
+	 * how many regions of the owner are in that region's neighborhood
+	 */
+	private static class OwnerVisibility
+	{
+		private final BitSet visible;
+		private final int[] counts;
+		
+		private OwnerVisibility(int nrOfRegions)
+		{
+			this.visible = new BitSet(nrOfRegions);
+			this.counts = new int[nrOfRegions];
+		}
+		
+		/**
+		 * A region of the owner was added to the neighborhood of given region
+		 */
+		private void add(int index)
+		{
+			if(counts[index]++ == 0)
+				visible.set(index);
+		}
+		
+		/**
+		 * A region of the owner was removed from the neighborhood of given region
+		 */
+		private void remove(int index)
+		{
+			if(--counts[index] == 0)
+				visible.clear(index);
+		}
+	}
+	
+	/**
+	 * Regions of one owner: how many regions and armies the owner has, for each SuperRegion
+	 * how many of its regions the owner has, and the armies reward of all SuperRegions the
+	 * owner fully owns
+	 */
+	private static class OwnerRegions
+	{
+		private final int[] superRegionCounts;
+		private int nrOfRegions;
+		private int nrOfArmies;
+		private int armiesReward;
+		
+		private OwnerRegions(int nrOfSuperRegions)
+		{
+			this.superRegionCounts = new int[nrOfSuperRegions];
+		}
+		
+		private OwnerRegions(OwnerRegions regions)
+		{
+			this.superRegionCounts = regions.superRegionCounts.clone();
+			this.nrOfRegions = regions.nrOfRegions;
+			this.nrOfArmies = regions.nrOfArmies;
+			this.armiesReward = regions.armiesReward;
+		}
+	}
+	
 }
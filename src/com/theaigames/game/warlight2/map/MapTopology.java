@@ -0,0 +1,374 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * MapTopology class
+ *
+ * The part of a map that never changes during a game: the regions, the superRegions
+ * with their bonuses and which regions are connected. A MapTopology can't be changed
+ * after it's built, so one instance is shared by every Map (and every game) on the
+ * same map file. The owners and armies are kept by the Map.
+ *
+ * Regions and superRegions are indexed in order of id. Neighbors and subRegions are
+ * kept in the order they appear in the map file.
+ *
+ * The connections are stored as one array of neighbor indices, in which the neighbors
+ * of a region are a range that starts at its offset in neighborOffsets. Every connection
+ * in each direction has its position in that array as edge index. A sorted copy of each
+ * range is kept as well, so looking up a connection is a binary search.
+ *
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public final class MapTopology {
+
+	private final int[] regionIds; //region index -> id
+	private final int[] regionSuperRegions; //region index -> index of its superRegion
+	private final int[] neighborOffsets; //region index -> edge index of the connection to its first neighbor, one extra entry for the total
+	private final int[] neighbors; //edge index -> index of the neighbor it connects to
+	private final int[] sortedNeighbors; //the neighbors of each region sorted by index, same ranges as neighbors
+	private final int[] sortedEdges; //edge index of each entry in sortedNeighbors
+	private final int[] superRegionIds; //superRegion index -> id
+	private final int[] superRegionRewards; //superRegion index -> armies reward
+	private final int[][] subRegions; //superRegion index -> indices of its regions
+	private final IdIndex regionIndices; //region id -> index
+	private final IdIndex superRegionIndices; //superRegion id -> index
+
+	private MapTopology(Builder builder)
+	{
+		int nrOfSuperRegions = builder.superRegions.size();
+		int nrOfRegions = builder.regions.size();
+
+		superRegionIds = new int[nrOfSuperRegions];
+		superRegionRewards = new int[nrOfSuperRegions];
+		for(int i = 0; i < nrOfSuperRegions; i++)
+			superRegionIds[i] = builder.superRegions.get(i)[0];
+		Arrays.sort(superRegionIds);
+		superRegionIndices = new IdIndex(superRegionIds);
+		for(int[] superRegion : builder.superRegions)
+			superRegionRewards[superRegionIndices.get(superRegion[0])] = superRegion[1];
+
+		regionIds = new int[nrOfRegions];
+		for(int i = 0; i < nrOfRegions; i++)
+			regionIds[i] = builder.regions.get(i).id;
+		Arrays.sort(regionIds);
+		regionIndices = new IdIndex(regionIds);
+
+		regionSuperRegions = new int[nrOfRegions];
+		neighborOffsets = new int[nrOfRegions + 1];
+		int[] nrOfSubRegions = new int[nrOfSuperRegions];
+		for(BuilderRegion region : builder.regions)
+		{
+			int index = regionIndices.get(region.id);
+			int superRegionIndex = superRegionIndices.get(region.superRegionId);
+			regionSuperRegions[index] = superRegionIndex;
+			nrOfSubRegions[superRegionIndex]++;
+			neighborOffsets[index + 1] = region.neighborIds.size();
+		}
+		for(int i = 0; i < nrOfRegions; i++)
+			neighborOffsets[i + 1] += neighborOffsets[i];
+
+		neighbors = new int[getNrOfEdges()];
+		sortedNeighbors = new int[neighbors.length];
+		sortedEdges = new int[neighbors.length];
+		for(BuilderRegion region : builder.regions)
+		{
+			int start = neighborOffsets[regionIndices.get(region.id)];
+			int end = start + region.neighborIds.size();
+			long[] sorted = new long[end - start]; //neighbor index in the high bits, edge index in the low bits
+			for(int edge = start; edge < end; edge++)
+			{
+				neighbors[edge] = regionIndices.get(region.neighborIds.get(edge - start));
+				sorted[edge - start] = ((long) neighbors[edge] << 32) | edge;
+			}
+			Arrays.sort(sorted);
+			for(int edge = start; edge < end; edge++)
+			{
+				sortedNeighbors[edge] = (int) (sorted[edge - start] >>> 32);
+				sortedEdges[edge] = (int) sorted[edge - start];
+			}
+		}
+
+		subRegions = new int[nrOfSuperRegions][];
+		for(int i = 0; i < nrOfSuperRegions; i++)
+			subRegions[i] = new int[nrOfSubRegions[i]];
+		Arrays.fill(nrOfSubRegions, 0);
+		for(BuilderRegion region : builder.regions) //map file order
+		{
+			int superRegionIndex = superRegionIndices.get(region.superRegionId);
+			subRegions[superRegionIndex][nrOfSubRegions[superRegionIndex]++] = regionIndices.get(region.id);
+		}
+	}
+
+	/**
+	 * @return : the amount of Regions
+	 */
+	public int getNrOfRegions() {
+		return regionIds.length;
+	}
+
+	/**
+	 * @return : the amount of SuperRegions
+	 */
+	public int getNrOfSuperRegions() {
+		return superRegionIds.length;
+	}
+
+	/**
+	 * @param id : a Region id number
+	 * @return : the index of the Region with given id, -1 if there is none
+	 */
+	public int getRegionIndex(int id) {
+		return regionIndices.get(id);
+	}
+
+	/**
+	 * @param id : a SuperRegion id number
+	 * @return : the index of the SuperRegion with given id, -1 if there is none
+	 */
+	public int getSuperRegionIndex(int id) {
+		return superRegionIndices.get(id);
+	}
+
+	/**
+	 * @param index : a Region index
+	 * @return : the id of the Region
+	 */
+	public int getRegionId(int index) {
+		return regionIds[index];
+	}
+
+	/**
+	 * @param index : a Region index
+	 * @return : the index of the SuperRegion the Region is part of
+	 */
+	public int getSuperRegionIndexOfRegion(int index) {
+		return regionSuperRegions[index];
+	}
+
+	/**
+	 * The connections of a Region have the edge indices from getFirstEdge(index)
+	 * up to (not including) getFirstEdge(index + 1), in map file order
+	 * @param index : a Region index, or the amount of Regions for the end of the last range
+	 * @return : the edge index of the connection from the Region to its first neighbor
+	 */
+	public int getFirstEdge(int index) {
+		return neighborOffsets[index];
+	}
+
+	/**
+	 * @param index : a Region index
+	 * @return : the amount of neighbors the Region has
+	 */
+	public int getNrOfNeighbors(int index) {
+		return neighborOffsets[index + 1] - neighborOffsets[index];
+	}
+
+	/**
+	 * @param edge : an edge index
+	 * @return : the index of the Region the connection goes to
+	 */
+	public int getNeighbor(int edge) {
+		return neighbors[edge];
+	}
+
+	/**
+	 * @return : the amount of connections, counted in both directions
+	 */
+	public int getNrOfEdges() {
+		return neighborOffsets[neighborOffsets.length - 1];
+	}
+
+	/**
+	 * Every connection in each direction has an edge index, from 0 to getNrOfEdges()
+	 * @param fromIndex : a Region index
+	 * @param toIndex : index of a neighbor of the Region
+	 * @return : the edge index of the connection from the Region to the neighbor, -1 if they aren't neighbors
+	 */
+	public int getEdgeIndex(int fromIndex, int toIndex) {
+		int i = Arrays.binarySearch(sortedNeighbors, neighborOffsets[fromIndex], neighborOffsets[fromIndex + 1], toIndex);
+		return i >= 0 ? sortedEdges[i] : -1;
+	}
+
+	/**
+	 * @param fromIndex : a Region index
+	 * @param toIndex : another Region index
+	 * @return : true if the Regions are connected
+	 */
+	public boolean isNeighbor(int fromIndex, int toIndex) {
+		return getEdgeIndex(fromIndex, toIndex) >= 0;
+	}
+
+	/**
+	 * @param index : a SuperRegion index
+	 * @return : the id of the SuperRegion
+	 */
+	public int getSuperRegionId(int index) {
+		return superRegionIds[index];
+	}
+
+	/**
+	 * @param index : a SuperRegion index
+	 * @return : the number of armies a Player is rewarded when he fully owns the SuperRegion
+	 */
+	public int getArmiesReward(int index) {
+		return superRegionRewards[index];
+	}
+
+	/**
+	 * @param index : a SuperRegion index
+	 * @return : the indices of the Regions that are part of the SuperRegion, must not be modified
+	 */
+	public int[] getSubRegions(int index) {
+		return subRegions[index];
+	}
+
+	/**
+	 * Collects the parts of a map and builds the MapTopology from them
+	 */
+	public static class Builder
+	{
+		private final ArrayList<int[]> superRegions = new ArrayList<int[]>(); //id, armies reward
+		private final ArrayList<BuilderRegion> regions = new ArrayList<BuilderRegion>();
+		private final HashMap<Integer, BuilderRegion> regionsById = new HashMap<Integer, BuilderRegion>();
+		private final HashMap<Integer, int[]> superRegionsById = new HashMap<Integer, int[]>();
+
+		/**
+		 * add a SuperRegion
+		 * @param id : id of the SuperRegion
+		 * @param armiesReward : bonus for owning all of its Regions
+		 */
+		public Builder addSuperRegion(int id, int armiesReward)
+		{
+			if(superRegionsById.containsKey(id))
+				System.err.println("SuperRegion cannot be added: id already exists.");
+			else {
+				int[] superRegion = new int[] {id, armiesReward};
+				superRegions.add(superRegion);
+				superRegionsById.put(id, superRegion);
+			}
+			return this;
+		}
+
+		/**
+		 * add a Region, its SuperRegion must have been added already
+		 * @param id : id of the Region
+		 * @param superRegionId : id of the SuperRegion it's part of
+		 */
+		public Builder addRegion(int id, int superRegionId)
+		{
+			if(regionsById.containsKey(id))
+				System.err.println("Region cannot be added: id already exists.");
+			else if(!superRegionsById.containsKey(superRegionId))
+				System.err.println("Could not find superRegion with id " + superRegionId);
+			else {
+				BuilderRegion region = new BuilderRegion(id, superRegionId);
+				regions.add(region);
+				regionsById.put(id, region);
+			}
+			return this;
+		}
+
+		/**
+		 * Adds a double connection between two Regions, both must have been added already
+		 * @param regionId : id of a Region
+		 * @param neighborId : id of its neighbor
+		 */
+		public Builder addNeighbor(int regionId, int neighborId)
+		{
+			BuilderRegion region = regionsById.get(regionId);
+			BuilderRegion neighbor = regionsById.get(neighborId);
+			if(region == null || neighbor == null)
+				System.err.println("Could not find region with id " + (region == null ? regionId : neighborId));
+			else if(!region.neighborIds.contains(neighborId))
+			{
+				region.neighborIds.add(neighborId);
+				if(!neighbor.neighborIds.contains(regionId))
+					neighbor.neighborIds.add(regionId);
+			}
+			return this;
+		}
+
+		/**
+		 * @return : a MapTopology with everything that has been added
+		 */
+		public MapTopology build()
+		{
+			return new MapTopology(this);
+		}
+	}
+
+	/**
+	 * Finds the position of an id in a sorted array of ids. When the ids are close
+	 * together that's a lookup table from id to position, for ids that are far apart
+	 * (or far from 0) a binary search, so the memory used doesn't depend on the ids.
+	 */
+	private static class IdIndex
+	{
+		private final int[] ids; //sorted
+		private final int minId;
+		private final int[] table; //id - minId -> position, -1 for missing ids, null if the ids are too far apart
+
+		private IdIndex(int[] ids)
+		{
+			this.ids = ids;
+			this.minId = ids.length > 0 ? ids[0] : 0;
+			long range = ids.length > 0 ? (long) ids[ids.length - 1] - minId + 1 : 0;
+			if(range <= 2L * ids.length + 64) {
+				table = new int[(int) range];
+				Arrays.fill(table, -1);
+				for(int i = 0; i < ids.length; i++)
+					table[ids[i] - minId] = i;
+			}
+			else
+				table = null;
+		}
+
+		/**
+		 * @param id : any id
+		 * @return : position of given id, -1 if it isn't there
+		 */
+		private int get(int id)
+		{
+			if(table != null) {
+				long offset = (long) id - minId;
+				return offset >= 0 && offset < table.length ? table[(int) offset] : -1;
+			}
+			int position = Arrays.binarySearch(ids, id);
+			return position >= 0 ? position : -1;
+		}
+	}
+
+	private static class BuilderRegion
+	{
+		private final int id;
+		private final int superRegionId;
+		private final ArrayList<Integer> neighborIds = new ArrayList<Integer>();
+
+		private BuilderRegion(int id, int superRegionId)
+		{
+			this.id = id;
+			this.superRegionId = superRegionId;
+		}
+	}
+}
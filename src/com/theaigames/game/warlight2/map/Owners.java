@@ -0,0 +1,73 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2.map;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Owners class
+ *
+ * Gives every owner name ("unknown", "neutral" and the player names) a small id, so
+ * a Map can store its owners in an int array and compare them without comparing
+ * strings. The names are only needed again when a map is written out for a bot or
+ * the game file. Ids are the same for every Map and never change.
+ *
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public final class Owners {
+
+	public static final int UNKNOWN = 0; //a new int array is all unknown
+	public static final int NEUTRAL = 1;
+
+	private static final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private static volatile String[] names = new String[0]; //id -> name
+
+	static {
+		getId("unknown");
+		getId("neutral");
+	}
+
+	private Owners() {}
+
+	/**
+	 * @param name : name of an owner
+	 * @return : the id of given owner, a new one if the name wasn't seen before
+	 */
+	public static synchronized int getId(String name)
+	{
+		Integer id = ids.get(name);
+		if(id == null) {
+			id = names.length;
+			String[] newNames = Arrays.copyOf(names, id + 1);
+			newNames[id] = name;
+			ids.put(name, id);
+			names = newNames;
+		}
+		return id;
+	}
+
+	/**
+	 * @param id : an owner id
+	 * @return : the name of the owner with given id
+	 */
+	public static String getName(int id) {
+		return names[id];
+	}
+}
@@ -17,55 +17,55 @@
 
 package com.theaigames.game.warlight2.map;
 
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.List;
+
+import com.theaigames.game.warlight2.Player;
 
 /**
  * Region class
  * 
+ * A Region gives access to the owner and armies of one region in one Map, which
+ * keeps them in arrays by region index. Which regions it's connected to is kept in
+ * the Map's MapTopology, which all Maps on the same map file share.
+ * 
  * @author Jim van Eeden <jim@starapple.nl>
  */
 
 public class Region implements Comparable<Region> {
 	
-	private int id;
-	private LinkedList<Region> neighbors;
-	private SuperRegion superRegion;
-	private int armies;
-	private String playerName;
-	
-	public Region(int id, SuperRegion superRegion)
-	{
-		this.id = id;
-		this.superRegion = superRegion;
-		this.neighbors = new LinkedList<Region>();
-		this.playerName = "unknown";
-		this.armies = 0;
-		
-		superRegion.addSubRegion(this);
-	}
+	private final Map map;
+	private final int id;
+	private final int index;
+	private final SuperRegion superRegion;
 	
-	public Region(int id, SuperRegion superRegion, String playerName, int armies)
-	{
-		this.id = id;
-		this.superRegion = superRegion;
-		this.neighbors = new LinkedList<Region>();
-		this.playerName = playerName;
-		this.armies = armies;
+	private final List<Region> neighborList = new AbstractList<Region>() {
+		@Override
+		public Region get(int i) {
+			if(i < 0 || i >= size())
+				throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+			MapTopology topology = map.getTopology();
+			return map.getRegionByIndex(topology.getNeighbor(topology.getFirstEdge(index) + i));
+		}
 		
-		superRegion.addSubRegion(this);
-	}
+		@Override
+		public int size() {
+			return map.getTopology().getNrOfNeighbors(index);
+		}
+	};
 	
 	/**
-	 * Adds a double connection between given neighbor and this region
-	 * @param neighbor
+	 * Only used by Map, which creates a Region for every region in its topology
+	 * @param map : the Map this Region is part of
+	 * @param index : index of this Region in the map's topology
+	 * @param superRegion : the SuperRegion this Region is part of
 	 */
-	public void addNeighbor(Region neighbor)
+	Region(Map map, int index, SuperRegion superRegion)
 	{
-		if(!neighbors.contains(neighbor))
-		{
-			neighbors.add(neighbor);
-			neighbor.addNeighbor(this);
-		}
+		this.map = map;
+		this.id = map.getTopology().getRegionId(index);
+		this.index = index;
+		this.superRegion = superRegion;
 	}
 	
 	
@@ -87,9 +87,9 @@ public class Region implements Comparable<Region> {
 	 */
 	public boolean isNeighbor(Region region)
 	{
-		if(neighbors.contains(region))
-			return true;
-		return false;
+		if(region.map != this.map)
+			return false;
+		return map.getTopology().isNeighbor(index, region.index);
 	}
 
 	/**
@@ -98,23 +98,37 @@ public class Region implements Comparable<Region> {
 	 */
 	public boolean ownedByPlayer(String playerName)
 	{
-		if(playerName.equals(this.playerName))
-			return true;
-		return false;
+		return playerName.equals(getPlayerName());
+	}
+	
+	/**
+	 * @param player : a Player
+	 * @return : True if this region is owned by given player, false otherwise
+	 */
+	public boolean ownedByPlayer(Player player)
+	{
+		return map.getOwnerId(index) == player.getOwnerId();
 	}
 	
 	/**
 	 * @param armies : Sets the number of armies that are on this Region
 	 */
 	public void setArmies(int armies) {
-		this.armies = armies;
+		map.setArmies(index, armies);
 	}
 	
 	/**
 	 * @param playerName : Sets the Name of the player that this Region belongs to
 	 */
 	public void setPlayerName(String playerName) {
-		this.playerName = playerName;
+		map.setOwnerId(index, Owners.getId(playerName));
+	}
+	
+	/**
+	 * @param ownerId : Sets the id of the owner of this Region, see Owners
+	 */
+	public void setOwnerId(int ownerId) {
+		map.setOwnerId(index, ownerId);
 	}
 	
 	/**
@@ -125,10 +139,17 @@ public class Region implements Comparable<Region> {
 	}
 	
 	/**
-	 * @return : A list of this Region's neighboring Regions
+	 * @return : The index of this Region in its Map
 	 */
-	public LinkedList<Region> getNeighbors() {
-		return neighbors;
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * @return : A list of this Region's neighboring Regions, can't be modified
+	 */
+	public List<Region> getNeighbors() {
+		return neighborList;
 	}
 
 	/**
@@ -142,14 +163,21 @@ public class Region implements Comparable<Region> {
 	 * @return : The number of armies on this region
 	 */
 	public int getArmies() {
-		return armies;
+		return map.getArmies(index);
 	}
 	
 	/**
 	 * @return : A string with the name of the player that owns this region
 	 */
 	public String getPlayerName() {
-			return playerName;
+		return Owners.getName(map.getOwnerId(index));
+	}
+	
+	/**
+	 * @return : The id of the owner of this region, see Owners
+	 */
+	public int getOwnerId() {
+		return map.getOwnerId(index);
 	}
 
 }
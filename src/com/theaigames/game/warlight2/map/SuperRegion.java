@@ -16,7 +16,9 @@
 //    file that was distributed with this source code.
 
 package com.theaigames.game.warlight2.map;
-import java.util.LinkedList;
+
+import java.util.AbstractList;
+import java.util.List;
 
 /**
  * SuperRegion class
@@ -26,39 +28,40 @@ import java.util.LinkedList;
 
 public class SuperRegion implements Comparable<SuperRegion> {
 	
-	private int id;
-	private int armiesReward;
-	private LinkedList<Region> subRegions;
+	private final Map map;
+	private final int id;
+	private final int index;
 	
-	public SuperRegion(int id, int armiesReward)
-	{
-		this.id = id;
-		this.armiesReward = armiesReward;
-		subRegions = new LinkedList<Region>();
-	}
+	private final List<Region> subRegionList = new AbstractList<Region>() {
+		@Override
+		public Region get(int i) {
+			return map.getRegionByIndex(map.getTopology().getSubRegions(index)[i]);
+		}
+		
+		@Override
+		public int size() {
+			return map.getTopology().getSubRegions(index).length;
+		}
+	};
 	
 	/**
-	 * Adds a region to this superRegion
-	 * @param subRegion : region to be added
+	 * Only used by Map, which creates a SuperRegion for every superRegion in its topology
+	 * @param map : the Map this SuperRegion is part of
+	 * @param index : index of this SuperRegion in the map's topology
 	 */
-	public void addSubRegion(Region subRegion)
+	SuperRegion(Map map, int index)
 	{
-		if(!subRegions.contains(subRegion))
-			subRegions.add(subRegion);
+		this.map = map;
+		this.id = map.getTopology().getSuperRegionId(index);
+		this.index = index;
 	}
 	
 	/**
-	 * @return : A string with the name of the player that fully owns this SuperRegion
+	 * @return : A string with the name of the player that fully owns this SuperRegion, null if nobody does
 	 */
 	public String ownedByPlayer()
 	{
-		String playerName = subRegions.getFirst().getPlayerName();
-		for(Region region : subRegions)
-		{
-			if (!playerName.equals(region.getPlayerName()))
-				return null;
-		}
-		return playerName;
+		return map.getSuperRegionOwner(this);
 	}
 	
 	/**
@@ -68,18 +71,25 @@ public class SuperRegion implements Comparable<SuperRegion> {
 		return id;
 	}
 	
+	/**
+	 * @return : The index of this SuperRegion in its Map
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
 	/**
 	 * @return : The number of armies a Player is rewarded when he fully owns this SuperRegion
 	 */
 	public int getArmiesReward() {
-		return armiesReward;
+		return map.getTopology().getArmiesReward(index);
 	}
 	
 	/**
-	 * @return : A list with the Regions that are part of this SuperRegion
+	 * @return : A list with the Regions that are part of this SuperRegion, can't be modified
 	 */
-	public LinkedList<Region> getSubRegions() {
-		return subRegions;
+	public List<Region> getSubRegions() {
+		return subRegionList;
 	}
 	
 	/**
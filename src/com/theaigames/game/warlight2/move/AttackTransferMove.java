@@ -16,6 +16,7 @@
 //    file that was distributed with this source code.
 
 package com.theaigames.game.warlight2.move;
+import com.theaigames.engine.io.ProtocolEncoder;
 import com.theaigames.game.warlight2.map.Region;
 
 /**
@@ -36,12 +37,29 @@ public class AttackTransferMove extends Move {
 	
 	public AttackTransferMove(String playerName, Region fromRegion, Region toRegion, int armies)
 	{
+		super(Kind.ATTACK_TRANSFER);
 		super.setPlayerName(playerName);
 		this.fromRegion = fromRegion;
 		this.toRegion = toRegion;
 		this.armies = armies;
 	}
 	
+	/**
+	 * Gives this move new values and makes it legal again, used to reuse move objects
+	 * @param playerName
+	 * @param fromRegion
+	 * @param toRegion
+	 * @param armies
+	 */
+	public void set(String playerName, Region fromRegion, Region toRegion, int armies)
+	{
+		super.setPlayerName(playerName);
+		super.setIllegalMove("");
+		this.fromRegion = fromRegion;
+		this.toRegion = toRegion;
+		this.armies = armies;
+	}
+	
 	/**
 	 * @param n : Sets the number of armies of this Move
 	 */
@@ -70,13 +88,20 @@ public class AttackTransferMove extends Move {
 		return armies;
 	}
 	
-	/**
-	 * @return : A string representation of this Move
-	 */
+	@Override
 	public String getString() {
 		if(getIllegalMove().equals(""))
 			return getPlayerName() + " attack/transfer " + fromRegion.getId() + " " + toRegion.getId() + " " + armies;
 		else
 			return getPlayerName() + " illegal_move " + getIllegalMove();
 	}
+	
+	@Override
+	public void appendString(ProtocolEncoder message) {
+		if(getIllegalMove().equals(""))
+			message.append(getPlayerName()).append(" attack/transfer").appendSpaced(fromRegion.getId())
+				.appendSpaced(toRegion.getId()).appendSpaced(armies);
+		else
+			message.append(getPlayerName()).append(" illegal_move ").append(getIllegalMove());
+	}
 }
@@ -0,0 +1,118 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2.move;
+
+import java.util.BitSet;
+import java.util.LinkedList;
+
+import com.theaigames.game.warlight2.map.Map;
+import com.theaigames.game.warlight2.map.Region;
+
+/**
+ * GameHistory class
+ * 
+ * Append-only log of everything that happened in the game. It stores a copy of the map
+ * at the start and for every move only the regions that changed, the full map for any
+ * point in the game can be rebuilt by replaying the MoveResults on the initial map.
+ * A null MoveResult marks the end of a round.
+ * 
+ * MoveResults that have been written to the game file are removed with clear(),
+ * so only the part of the game that has not been written yet is kept in memory.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class GameHistory {
+	
+	private final Map map;
+	private final Map initialMap;
+	private final LinkedList<MoveResult> moveResults;
+	
+	/**
+	 * @param map : the map the game is played on, changes on this map are recorded from now on
+	 */
+	public GameHistory(Map map)
+	{
+		this.map = map;
+		this.initialMap = map.getMapCopy();
+		this.moveResults = new LinkedList<MoveResult>();
+		
+		map.clearChangedRegions();
+	}
+	
+	/**
+	 * Stores given move together with all the regions that changed since the last stored move
+	 * @param move : the move, null if only the map should be stored
+	 * @param player1View : true if the move is shown in player1's view
+	 * @param player2View : true if the move is shown in player2's view
+	 * @param fogOfWar : true if the players' views only show their visible regions
+	 */
+	public void addMoveResult(Move move, boolean player1View, boolean player2View, boolean fogOfWar)
+	{
+		BitSet changedRegions = map.getChangedRegionIndices();
+		int nrOfChanges = changedRegions.cardinality();
+		int[] regionIndices = new int[nrOfChanges];
+		String[] playerNames = new String[nrOfChanges];
+		int[] armies = new int[nrOfChanges];
+		
+		int i = 0;
+		for(int index = changedRegions.nextSetBit(0); index >= 0; index = changedRegions.nextSetBit(index + 1))
+		{
+			Region region = map.getRegionByIndex(index);
+			regionIndices[i] = index;
+			playerNames[i] = region.getPlayerName();
+			armies[i] = region.getArmies();
+			i++;
+		}
+		map.clearChangedRegions();
+		
+		moveResults.add(new MoveResult(move, regionIndices, playerNames, armies, player1View, player2View, fogOfWar));
+	}
+	
+	/**
+	 * Marks the end of a round
+	 */
+	public void addRoundEnd()
+	{
+		moveResults.add(null);
+	}
+	
+	/**
+	 * Removes all stored MoveResults, the initial map is kept
+	 */
+	public void clear()
+	{
+		moveResults.clear();
+	}
+	
+	/**
+	 * @return : a new copy of the map as it was when the history started
+	 */
+	public Map getInitialMapCopy()
+	{
+		return initialMap.getMapCopy();
+	}
+	
+	/**
+	 * @return : all stored MoveResults since the last clear(), null for each end of a round
+	 */
+	public LinkedList<MoveResult> getMoveResults()
+	{
+		return moveResults;
+	}
+}
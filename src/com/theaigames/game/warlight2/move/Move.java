@@ -17,19 +17,44 @@
 
 package com.theaigames.game.warlight2.move;
 
+import com.theaigames.engine.io.ProtocolEncoder;
+
 /**
  * Move class
  * 
- * Superclass to all move classes
+ * Superclass to all move classes, getKind() tells which one a Move is
  * 
  * @author Jim van Eeden <jim@starapple.nl>
  */
 
-public class Move {
+public abstract class Move {
+	
+	/**
+	 * The kinds of moves, one for each subclass
+	 */
+	public enum Kind {
+		PLACE_ARMIES, //PlaceArmiesMove
+		ATTACK_TRANSFER //AttackTransferMove
+	}
 	
+	private final Kind kind;
 	private String playerName; //name of the player that did this move
 	private String illegalMove = ""; //gets the value of the error message if move is illegal, else remains empty
 	
+	/**
+	 * @param kind : the kind of the subclass
+	 */
+	protected Move(Kind kind) {
+		this.kind = kind;
+	}
+	
+	/**
+	 * @return : The kind of this Move, to know which subclass it is
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+	
 	/**
 	 * @param playerName : Sets the name of the Player that this Move belongs to
 	 */
@@ -57,5 +82,16 @@ public class Move {
 	public String getIllegalMove() {
 		return illegalMove;
 	}
+	
+	/**
+	 * @return : A string representation of this Move
+	 */
+	public abstract String getString();
+	
+	/**
+	 * Adds the same as getString() to a message for a bot
+	 * @param message : message to add to
+	 */
+	public abstract void appendString(ProtocolEncoder message);
 
 }
@@ -16,15 +16,18 @@
 //    file that was distributed with this source code.
 
 package com.theaigames.game.warlight2.move;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 
+import com.theaigames.game.warlight2.GameRandom;
 import com.theaigames.game.warlight2.Player;
 
 /**
  * MoveQueue class
  * 
  * Stores all moves returned by the bots for one round and determines
- * the ordering in which they are executed
+ * the ordering in which they are executed. The attackTransfer moves of
+ * each player are taken from the front of a deque, in the order given.
  * 
  * @author Jim van Eeden <jim@starapple.nl>
  */
@@ -32,17 +35,35 @@ import com.theaigames.game.warlight2.Player;
 public class MoveQueue {
 	
 	public ArrayList<PlaceArmiesMove> placeArmiesMoves;
-	public ArrayList<AttackTransferMove> attackTransferMovesP1;
-	public ArrayList<AttackTransferMove> attackTransferMovesP2;
+	public ArrayDeque<AttackTransferMove> attackTransferMovesP1;
+	public ArrayDeque<AttackTransferMove> attackTransferMovesP2;
 	private Player player1, player2;
+	private GameRandom random;
 	
-	public MoveQueue(Player player1, Player player2)
+	/**
+	 * @param player1
+	 * @param player2
+	 * @param random : decides which player moves first
+	 */
+	public MoveQueue(Player player1, Player player2, GameRandom random)
 	{
 		this.placeArmiesMoves = new ArrayList<PlaceArmiesMove>();
-		this.attackTransferMovesP1 = new ArrayList<AttackTransferMove>();
-		this.attackTransferMovesP2 = new ArrayList<AttackTransferMove>();
+		this.attackTransferMovesP1 = new ArrayDeque<AttackTransferMove>();
+		this.attackTransferMovesP2 = new ArrayDeque<AttackTransferMove>();
 		this.player1 = player1;
 		this.player2 = player2;
+		this.random = random;
+	}
+	
+	/**
+	 * @param player1
+	 * @param player2
+	 * @return : an empty queue for given players, its random generator is a copy of
+	 * this queue's, so it decides the same
+	 */
+	public MoveQueue getEmptyCopy(Player player1, Player player2)
+	{
+		return new MoveQueue(player1, player2, random.copy());
 	}
 	
 	/**
@@ -50,16 +71,17 @@ public class MoveQueue {
 	 */
 	public void addMove(Move move)
 	{
-		try { //add PlaceArmiesMove
-			PlaceArmiesMove plm = (PlaceArmiesMove) move;
-			placeArmiesMoves.add(plm);
-		}
-		catch(Exception e) { //add AttackTransferMove
+		switch(move.getKind()) {
+		case PLACE_ARMIES:
+			placeArmiesMoves.add((PlaceArmiesMove) move);
+			break;
+		case ATTACK_TRANSFER:
 			AttackTransferMove atm = (AttackTransferMove) move;
 			if(player1.getName().equals(move.getPlayerName()))
-				attackTransferMovesP1.add(atm);
+				attackTransferMovesP1.addLast(atm);
 			else if(player2.getName().equals(move.getPlayerName()))
-				attackTransferMovesP2.add(atm);
+				attackTransferMovesP2.addLast(atm);
+			break;
 		}
 	}
 
@@ -103,7 +125,7 @@ public class MoveQueue {
 		{
 			if(moveNr % 2 == 1 || previousMovePlayer.equals("")) //first move of the two
 			{
-				double rand = Math.random();
+				double rand = random.nextDouble();
 				return getMove(rand < 0.5);
 			}
 			else //it's the other player's turn
@@ -123,18 +145,9 @@ public class MoveQueue {
 	 */
 	private AttackTransferMove getMove(Boolean conditionForPlayer1)
 	{
-		AttackTransferMove move;
 		if(!attackTransferMovesP1.isEmpty() && (conditionForPlayer1 || attackTransferMovesP2.isEmpty())) //get player1's move
-		{
-			move = attackTransferMovesP1.get(0);
-			attackTransferMovesP1.remove(0);
-			return move;
-		}
+			return attackTransferMovesP1.pollFirst();
 		else // get player2's move
-		{
-			move = attackTransferMovesP2.get(0);
-			attackTransferMovesP2.remove(0);
-			return move;
-		}
+			return attackTransferMovesP2.pollFirst();
 	}
 }
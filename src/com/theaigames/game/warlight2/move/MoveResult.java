@@ -18,11 +18,14 @@
 package com.theaigames.game.warlight2.move;
 
 import com.theaigames.game.warlight2.map.Map;
+import com.theaigames.game.warlight2.map.Region;
 
 /**
  * MoveResult class
  * 
- * Used for storing the game so the visualizer can replay it
+ * Used for storing the game so the visualizer can replay it.
+ * Instead of a copy of the whole map, only the regions that
+ * changed because of the move are stored.
  * 
  * @author Jim van Eeden <jim@starapple.nl>
  */
@@ -30,12 +33,46 @@ import com.theaigames.game.warlight2.map.Map;
 public class MoveResult {
 	
 	private final Move move;
-	private final Map map;
+	private final int[] regionIndices;
+	private final String[] playerNames;
+	private final int[] armies;
+	private final boolean player1View;
+	private final boolean player2View;
+	private final boolean fogOfWar;
 	
-	public MoveResult(Move move, Map resultingMap)
+	/**
+	 * @param move : the move, null if there is only a map to show
+	 * @param regionIndices : indices of the regions that changed
+	 * @param playerNames : new owners of the changed regions
+	 * @param armies : new armies of the changed regions
+	 * @param player1View : true if this result is shown in player1's view
+	 * @param player2View : true if this result is shown in player2's view
+	 * @param fogOfWar : true if the players' views only show their visible regions
+	 */
+	public MoveResult(Move move, int[] regionIndices, String[] playerNames, int[] armies,
+			boolean player1View, boolean player2View, boolean fogOfWar)
 	{
 		this.move = move;
-		this.map = resultingMap;
+		this.regionIndices = regionIndices;
+		this.playerNames = playerNames;
+		this.armies = armies;
+		this.player1View = player1View;
+		this.player2View = player2View;
+		this.fogOfWar = fogOfWar;
+	}
+	
+	/**
+	 * Applies the changes of this MoveResult to given map
+	 * @param map : map in the state right before this MoveResult
+	 */
+	public void apply(Map map)
+	{
+		for(int i = 0; i < regionIndices.length; i++)
+		{
+			Region region = map.getRegionByIndex(regionIndices[i]);
+			region.setPlayerName(playerNames[i]);
+			region.setArmies(armies[i]);
+		}
 	}
 	
 	/**
@@ -47,11 +84,27 @@ public class MoveResult {
 	}
 	
 	/**
-	 * @return : the map in the MoveResult object
+	 * @return : true if this MoveResult is shown in player1's view
+	 */
+	public boolean isInPlayer1View()
+	{
+		return this.player1View;
+	}
+	
+	/**
+	 * @return : true if this MoveResult is shown in player2's view
+	 */
+	public boolean isInPlayer2View()
+	{
+		return this.player2View;
+	}
+	
+	/**
+	 * @return : true if the players' views only show their visible regions
 	 */
-	public Map getMap()
+	public boolean hasFogOfWar()
 	{
-		return this.map;
+		return this.fogOfWar;
 	}
 
 }
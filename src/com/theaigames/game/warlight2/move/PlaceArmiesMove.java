@@ -16,6 +16,7 @@
 //    file that was distributed with this source code.
 
 package com.theaigames.game.warlight2.move;
+import com.theaigames.engine.io.ProtocolEncoder;
 import com.theaigames.game.warlight2.map.Region;
 
 /**
@@ -34,11 +35,26 @@ public class PlaceArmiesMove extends Move {
 	
 	public PlaceArmiesMove(String playerName, Region region, int armies)
 	{
+		super(Kind.PLACE_ARMIES);
 		super.setPlayerName(playerName);
 		this.region = region;
 		this.armies = armies;
 	}
 	
+	/**
+	 * Gives this move new values and makes it legal again, used to reuse move objects
+	 * @param playerName
+	 * @param region
+	 * @param armies
+	 */
+	public void set(String playerName, Region region, int armies)
+	{
+		super.setPlayerName(playerName);
+		super.setIllegalMove("");
+		this.region = region;
+		this.armies = armies;
+	}
+	
 	/**
 	 * @param n : Sets the number of armies this move will place on a Region
 	 */
@@ -60,9 +76,7 @@ public class PlaceArmiesMove extends Move {
 		return armies;
 	}
 	
-	/**
-	 * @return : A string representation of this Move
-	 */
+	@Override
 	public String getString() {
 		if(getIllegalMove().equals(""))
 			return getPlayerName() + " place_armies " + region.getId() + " " + armies;
@@ -71,4 +85,12 @@ public class PlaceArmiesMove extends Move {
 				
 	}
 	
+	@Override
+	public void appendString(ProtocolEncoder message) {
+		if(getIllegalMove().equals(""))
+			message.append(getPlayerName()).append(" place_armies").appendSpaced(region.getId()).appendSpaced(armies);
+		else
+			message.append(getPlayerName()).append(" illegal_move ").append(getIllegalMove());
+	}
+	
 }
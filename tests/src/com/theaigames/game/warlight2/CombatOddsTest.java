@@ -0,0 +1,66 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.warlight2;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * CombatOddsTest class
+ * 
+ * Checks that the chances given by CombatOdds form a distribution: every
+ * outcome that can't happen has chance 0 and all outcomes together add up to 1.
+ * 
+ * @author Jim van Eeden <jim@starapple.nl>
+ */
+
+public class CombatOddsTest {
+	
+	private static final double DELTA = 1e-9;
+	private static final int[] ARMIES = {1, 2, 3, 4, 5, 6, 7, 8, 10, 13, 17, 25, 40, 100};
+	
+	@Test
+	public void outcomesAddUpToOne()
+	{
+		for(int attackingArmies : ARMIES)
+		{
+			for(int defendingArmies : ARMIES)
+			{
+				CombatOdds odds = Combat.getOdds(attackingArmies, defendingArmies);
+				double total = 0;
+				// also walk past the amount of armies, those outcomes must add nothing
+				for(int attackersLost = 0; attackersLost <= attackingArmies + 2; attackersLost++)
+					for(int defendersLost = 0; defendersLost <= defendingArmies + 2; defendersLost++)
+						total += odds.getProbability(attackersLost, defendersLost, true)
+								+ odds.getProbability(attackersLost, defendersLost, false);
+				
+				assertEquals(attackingArmies + " vs " + defendingArmies, 1.0, total, DELTA);
+			}
+		}
+	}
+	
+	@Test
+	public void moreAttackersLostThanAttackedIsImpossible()
+	{
+		CombatOdds odds = Combat.getOdds(2, 6);
+		assertEquals(0.0, odds.getProbability(4, 1, false), 0.0);
+		assertEquals(0.0, odds.getProbability(3, 5, false), 0.0);
+		assertEquals(0.0, odds.getProbability(3, 6, true), 0.0);
+	}
+}